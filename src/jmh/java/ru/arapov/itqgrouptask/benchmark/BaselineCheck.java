@@ -0,0 +1,82 @@
+package ru.arapov.itqgrouptask.benchmark;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BaselineCheck {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        Path resultFile = Path.of(args[0]);
+        Path baselineFile = Path.of(args[1]);
+        double allocTolerance = Double.parseDouble(args[2]);
+
+        if (!Files.exists(baselineFile)) {
+            System.out.printf("Baseline %s не найден, сравнение пропущено. Чтобы зафиксировать текущий прогон: cp %s %s%n",
+                    baselineFile, resultFile, baselineFile);
+            return;
+        }
+
+        Map<String, JsonNode> current = load(resultFile);
+        Map<String, JsonNode> baseline = load(baselineFile);
+        int regressions = 0;
+
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.printf("%-90s новый бенчмарк, в baseline отсутствует%n", entry.getKey());
+                continue;
+            }
+
+            double time = score(entry.getValue().path("primaryMetric"));
+            double baseTime = score(base.path("primaryMetric"));
+            double alloc = score(entry.getValue().path("secondaryMetrics").path(ALLOC_METRIC));
+            double baseAlloc = score(base.path("secondaryMetrics").path(ALLOC_METRIC));
+            boolean allocRegressed = alloc > baseAlloc * (1 + allocTolerance) && alloc - baseAlloc > 16;
+
+            System.out.printf("%-90s время %10.3f -> %10.3f %s (%+.1f%%), аллокации %10.1f -> %10.1f B/op (%+.1f%%)%s%n",
+                    entry.getKey(), baseTime, time, entry.getValue().path("primaryMetric").path("scoreUnit").asString(),
+                    change(baseTime, time), baseAlloc, alloc, change(baseAlloc, alloc),
+                    allocRegressed ? "  <-- РЕГРЕССИЯ" : "");
+            if (allocRegressed) {
+                regressions++;
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.printf("Аллокации выросли больше чем на %.0f%% в %d бенчмарках%n", allocTolerance * 100, regressions);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> load(Path file) throws IOException {
+        JsonNode root;
+        try (InputStream input = Files.newInputStream(file)) {
+            root = JsonMapper.builder().build().readTree(input);
+        }
+
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode run : root) {
+            Map<String, String> params = new TreeMap<>();
+            run.path("params").properties().forEach(param -> params.put(param.getKey(), param.getValue().asString()));
+            results.put(run.path("benchmark").asString() + (params.isEmpty() ? "" : " " + params), run);
+        }
+        return results;
+    }
+
+    private static double score(JsonNode metric) {
+        return metric.path("score").asDouble();
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : (after - before) / before * 100;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.arapov.itqgrouptask.benchmark;
+
+import ru.arapov.itqgrouptask.model.Document;
+import ru.arapov.itqgrouptask.model.DocumentAction;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+import ru.arapov.itqgrouptask.model.HistoryEntry;
+import java.time.LocalDateTime;
+
+final class BenchmarkFixtures {
+
+    private static final DocumentAction[] ACTIONS = DocumentAction.values();
+
+    private BenchmarkFixtures() {
+    }
+
+    static Document document(long id, int historySize) {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 15, 12, 0);
+
+        Document document = new Document();
+        document.setId(id);
+        document.setDocumentNumber("DOC-20250115-" + String.format("%08X", id));
+        document.setAuthor("Arapov");
+        document.setTitle("Документ " + id);
+        document.setStatus(DocumentStatus.SUBMITTED);
+        document.setInitiator("arapov");
+        document.setCreatedAt(now);
+        document.setUpdatedAt(now);
+
+        for (int i = 0; i < historySize; i++) {
+            HistoryEntry entry = new HistoryEntry();
+            entry.setId(id * 10_000 + i);
+            entry.setDocument(document);
+            entry.setAction(ACTIONS[i % ACTIONS.length]);
+            entry.setInitiator("arapov");
+            entry.setTimestamp(now.plusSeconds(i));
+            entry.setComment("Комментарий " + i);
+            document.getHistory().add(entry);
+        }
+        return document;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.arapov.itqgrouptask.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.arapov.itqgrouptask.dto.DocumentResponse;
+import ru.arapov.itqgrouptask.dto.HistoryResponse;
+import ru.arapov.itqgrouptask.model.Document;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DocumentMappingBenchmark {
+
+    @Param({"1", "50", "1000"})
+    private int historySize;
+
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        document = BenchmarkFixtures.document(1L, historySize);
+    }
+
+    @Benchmark
+    public DocumentResponse documentResponse() {
+        return DocumentResponse.from(document);
+    }
+
+    @Benchmark
+    public List<HistoryResponse> historyResponses() {
+        return document.getHistory().stream()
+                .map(HistoryResponse::from)
+                .toList();
+    }
+}
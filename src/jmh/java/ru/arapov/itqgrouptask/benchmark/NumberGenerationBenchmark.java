@@ -0,0 +1,38 @@
+package ru.arapov.itqgrouptask.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import ru.arapov.itqgrouptask.utils.NumberGenerator;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class NumberGenerationBenchmark {
+
+    private static final long BLOCK_SIZE = 1000;
+
+    private final AtomicLong documentSequence = new AtomicLong(1);
+
+    private final AtomicLong registryCounter = new AtomicLong();
+
+    private final NumberGenerator numberGenerator = new NumberGenerator(
+            () -> documentSequence.getAndAdd(BLOCK_SIZE), () -> BLOCK_SIZE,
+            registryCounter::addAndGet, Clock.systemDefaultZone());
+
+    @Benchmark
+    public String documentNumber() {
+        return numberGenerator.documentNumber();
+    }
+
+    @Benchmark
+    public String registryNumber() {
+        return numberGenerator.registryNumber();
+    }
+}
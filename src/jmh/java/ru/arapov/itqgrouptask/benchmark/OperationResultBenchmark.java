@@ -0,0 +1,51 @@
+package ru.arapov.itqgrouptask.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.arapov.itqgrouptask.dto.OperationResult;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class OperationResultBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private List<Long> ids;
+
+    private Map<Long, DocumentStatus> statuses;
+
+    @Setup
+    public void setUp() {
+        ids = new ArrayList<>(size);
+        statuses = new HashMap<>();
+        for (long id = 1; id <= size; id++) {
+            ids.add(id);
+            if (id % 20 == 0) {
+                continue;
+            }
+            statuses.put(id, id % 7 == 0 ? DocumentStatus.DRAFT : DocumentStatus.SUBMITTED);
+        }
+    }
+
+    @Benchmark
+    public List<OperationResult> approveResults() {
+        return ids.stream()
+                .map(id -> OperationResult.forTransition(id, statuses.get(id), DocumentStatus.SUBMITTED,
+                        "Документ успешно утвержден"))
+                .toList();
+    }
+}
@@ -1,25 +1,51 @@
 package ru.arapov.itqgrouptask.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.arapov.itqgrouptask.dto.BulkCreateRequest;
 import ru.arapov.itqgrouptask.dto.BulkOperationRequest;
+import ru.arapov.itqgrouptask.dto.CachedDocument;
+import ru.arapov.itqgrouptask.dto.CursorPage;
+import ru.arapov.itqgrouptask.dto.DocumentChange;
 import ru.arapov.itqgrouptask.dto.DocumentRequest;
 import ru.arapov.itqgrouptask.dto.DocumentResponse;
+import ru.arapov.itqgrouptask.dto.DocumentSearchFilter;
+import ru.arapov.itqgrouptask.dto.ExportFormat;
+import ru.arapov.itqgrouptask.dto.HistoryResponse;
+import ru.arapov.itqgrouptask.dto.ImportReport;
+import ru.arapov.itqgrouptask.dto.LargeBulkOperationRequest;
 import ru.arapov.itqgrouptask.dto.OperationResult;
+import ru.arapov.itqgrouptask.dto.SearchPage;
+import ru.arapov.itqgrouptask.dto.TitleSearchMode;
+import ru.arapov.itqgrouptask.dto.TotalMode;
 import ru.arapov.itqgrouptask.model.DocumentStatus;
+import ru.arapov.itqgrouptask.service.DocumentChangeService;
+import ru.arapov.itqgrouptask.service.DocumentExportService;
+import ru.arapov.itqgrouptask.service.DocumentImportService;
 import ru.arapov.itqgrouptask.service.DocumentService;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/documents")
@@ -27,8 +53,27 @@ import java.util.List;
 @Slf4j
 public class DocumentController {
 
+    private static final String TOTAL_KIND_HEADER = "X-Total-Kind";
+
+    private static final long ASYNC_TIMEOUT_MARGIN_MS = 60_000;
+
     private final DocumentService documentService;
 
+    private final DocumentExportService documentExportService;
+
+    private final DocumentImportService documentImportService;
+
+    private final DocumentChangeService documentChangeService;
+
+    @Value("${export.request-timeout:1800000}")
+    private long exportTimeout;
+
+    @Value("${changes.max-wait:30000}")
+    private long changesMaxWait;
+
+    @Value("${changes.stream-max-duration:600000}")
+    private long streamMaxDuration;
+
     @PostMapping
     public ResponseEntity<DocumentResponse> createDocument(@Valid @RequestBody DocumentRequest request) {
         DocumentResponse response = documentService.createDocument(request);
@@ -37,11 +82,41 @@ public class DocumentController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<List<DocumentResponse>> createDocuments(@Valid @RequestBody BulkCreateRequest request) {
+        List<DocumentResponse> responses = documentService.createDocuments(request);
+
+        log.info("Пакетное создание завершено. Создано документов: {}", responses.size());
+        return new ResponseEntity<>(responses, HttpStatus.CREATED);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<DocumentResponse> getDocument(@PathVariable Long id) {
-        DocumentResponse response = documentService.getDocumentWithHistory(id);
+    public ResponseEntity<byte[]> getDocument(@PathVariable Long id,
+                                              @RequestParam(required = false) Integer historyLimit,
+                                              WebRequest webRequest) {
+        CachedDocument document = documentService.getDocumentView(id, historyLimit);
+
+        if (webRequest.checkNotModified(document.etag())) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(document.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(document.json());
+    }
+
+    @GetMapping("/{id}/history")
+    public ResponseEntity<CursorPage<HistoryResponse>> getDocumentHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        CursorPage<HistoryResponse> page = documentService.getDocumentHistory(
+                id, cursor, Math.clamp(size, 1, DocumentService.MAX_HISTORY_PAGE));
 
-        return ResponseEntity.ok(response);
+        log.info("История документа {} получена. Записей: {}, Есть продолжение: {}",
+                id, page.size(), page.nextCursor() != null);
+        return ResponseEntity.ok(page);
     }
 
     @PostMapping("/batch")
@@ -76,20 +151,156 @@ public class DocumentController {
         return ResponseEntity.ok(results);
     }
 
+    @PostMapping("/submit/large")
+    public ResponseEntity<List<OperationResult>> submitDocumentsLarge(
+            @Valid @RequestBody LargeBulkOperationRequest request) {
+        List<OperationResult> results = documentService.submitDocumentsInChunks(request);
+
+        long successCount = results.stream()
+                .filter(r -> r.status() == OperationResult.ResultStatus.SUCCESS)
+                .count();
+
+        log.info("Параллельная отправка на согласование завершена. Успешно: {}, Всего: {}",
+                successCount, results.size());
+        return ResponseEntity.ok(results);
+    }
+
+    @PostMapping("/approve/large")
+    public ResponseEntity<List<OperationResult>> approveDocumentsLarge(
+            @Valid @RequestBody LargeBulkOperationRequest request) {
+        List<OperationResult> results = documentService.approveDocumentsInChunks(request);
+
+        long successCount = results.stream()
+                .filter(r -> r.status() == OperationResult.ResultStatus.SUCCESS)
+                .count();
+
+        log.info("Параллельное утверждение завершено. Успешно: {}, Всего: {}", successCount, results.size());
+        return ResponseEntity.ok(results);
+    }
+
     @GetMapping("/search")
     public ResponseEntity<Page<DocumentResponse>> searchDocuments(
             @RequestParam(required = false) DocumentStatus status,
             @RequestParam(required = false) String author,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toDate,
+            @RequestParam(defaultValue = "EXACT") TotalMode totalMode,
             @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
 
-        Page<DocumentResponse> page = documentService.searchDocuments(status, author, fromDate, toDate, pageable);
+        DocumentSearchFilter filter = new DocumentSearchFilter(status, author, fromDate, toDate);
+        SearchPage<DocumentResponse> result = documentService.searchDocuments(filter, pageable, totalMode);
+        Page<DocumentResponse> page = result.page();
 
         log.info("Поиск завершен. Найдено элементов: {}, Всего страниц: {}",
                 page.getNumberOfElements(), page.getTotalPages());
 
+        return ResponseEntity.ok()
+                .header(TOTAL_KIND_HEADER, result.totalKind().name())
+                .body(page);
+    }
+
+    @GetMapping("/search/scroll")
+    public ResponseEntity<CursorPage<DocumentResponse>> scrollDocuments(
+            @RequestParam(required = false) DocumentStatus status,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(defaultValue = "EXACT") TotalMode totalMode) {
+
+        DocumentSearchFilter filter = new DocumentSearchFilter(status, author, fromDate, toDate);
+        CursorPage<DocumentResponse> page = documentService.scrollDocuments(
+                filter, cursor, Math.clamp(size, 1, 1000), withTotal, totalMode);
+
+        log.info("Поиск по курсору завершен. Найдено элементов: {}, Есть продолжение: {}",
+                page.size(), page.nextCursor() != null);
+
         return ResponseEntity.ok(page);
     }
 
+    @GetMapping("/search/title")
+    public ResponseEntity<CursorPage<DocumentResponse>> searchByTitle(
+            @RequestParam @NotBlank @Size(max = 255) String q,
+            @RequestParam(defaultValue = "FULLTEXT") TitleSearchMode mode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPage<DocumentResponse> page = documentService.searchByTitle(q, mode, cursor, Math.clamp(size, 1, 1000));
+
+        log.info("Поиск по заголовку завершен. Найдено элементов: {}, Есть продолжение: {}",
+                page.size(), page.nextCursor() != null);
+
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportDocuments(
+            @RequestParam(required = false) DocumentStatus status,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toDate,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            WebRequest webRequest) {
+
+        DocumentSearchFilter filter = new DocumentSearchFilter(status, author, fromDate, toDate);
+        StreamingResponseBody body = out -> documentExportService.export(filter, format, out);
+        setAsyncTimeout(webRequest, exportTimeout);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"documents." + format.getExtension() + "\"")
+                .body(body);
+    }
+
+    @GetMapping("/changes")
+    public CompletableFuture<ResponseEntity<CursorPage<DocumentChange>>> getChanges(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "0") long wait,
+            WebRequest webRequest) {
+        setAsyncTimeout(webRequest, changesMaxWait + ASYNC_TIMEOUT_MARGIN_MS);
+
+        return documentChangeService.changesAsync(cursor, Math.clamp(limit, 1, DocumentChangeService.MAX_PAGE), wait)
+                .thenApply(page -> {
+                    log.info("Лента изменений получена. Записей: {}, Курсор: {}", page.size(), page.nextCursor());
+                    return ResponseEntity.ok(page);
+                });
+    }
+
+    @GetMapping("/changes/stream")
+    public ResponseEntity<StreamingResponseBody> streamChanges(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int batchSize,
+            WebRequest webRequest) {
+        DocumentChangeService.ChangeCursor after = DocumentChangeService.parseCursor(cursor);
+        int size = Math.clamp(batchSize, 1, DocumentChangeService.MAX_PAGE);
+        StreamingResponseBody body = out -> documentChangeService.stream(after, size, out);
+        setAsyncTimeout(webRequest, streamMaxDuration + ASYNC_TIMEOUT_MARGIN_MS);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson;charset=UTF-8"))
+                .body(body);
+    }
+
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson",
+            MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<ImportReport> importDocuments(
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            InputStream body) {
+
+        ImportReport report = documentImportService.importDocuments(format, body);
+
+        log.info("Импорт завершен. Загружено: {}, Отклонено: {}", report.importedRows(), report.rejectedRows());
+        return ResponseEntity.ok(report);
+    }
+
+    // Долгий ответ получает свой таймаут асинхронной обработки, остальные запросы живут с таймаутом по умолчанию
+    private static void setAsyncTimeout(WebRequest webRequest, long timeoutMillis) {
+        AsyncWebRequest asyncWebRequest = WebAsyncUtils.getAsyncManager(webRequest).getAsyncWebRequest();
+        if (asyncWebRequest != null) {
+            asyncWebRequest.setTimeout(timeoutMillis);
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package ru.arapov.itqgrouptask.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import ru.arapov.itqgrouptask.dto.StressTestReport;
+import ru.arapov.itqgrouptask.dto.StressTestRequest;
+import ru.arapov.itqgrouptask.service.StressTestService;
+
+@RestController
+@RequestMapping("/api/test")
+@RequiredArgsConstructor
+public class StressTestController {
+
+    private final StressTestService stressTestService;
+
+    @PostMapping("/stress")
+    public StressTestReport runStressTest(@Valid @RequestBody StressTestRequest request) {
+        return stressTestService.run(request);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.arapov.itqgrouptask.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.arapov.itqgrouptask.dto.WorkerQueueStats;
+import ru.arapov.itqgrouptask.utils.DocumentWorker;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/worker")
+@RequiredArgsConstructor
+public class WorkerController {
+
+    private final DocumentWorker documentWorker;
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<WorkerQueueStats>> getStats() {
+        return ResponseEntity.ok(documentWorker.stats());
+    }
+}
@@ -0,0 +1,14 @@
+package ru.arapov.itqgrouptask.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public record BulkCreateRequest(
+
+        @NotEmpty(message = "Список документов не может быть пустым")
+        @Size(max = 10000, message = "Нельзя создавать больше, чем 10000 документов за раз")
+        List<@Valid DocumentRequest> documents
+) {
+}
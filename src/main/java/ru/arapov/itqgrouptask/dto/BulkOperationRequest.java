@@ -2,6 +2,7 @@ package ru.arapov.itqgrouptask.dto;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import java.util.List;
 
@@ -10,7 +11,7 @@ public record BulkOperationRequest(
 
         @NotEmpty(message = "Список айди не может быть пустым")
         @Size(max = 1000, message = "Нельзя обрабатывать больше, чем 1000 документов за раз")
-        List<Long> ids,
+        List<@NotNull(message = "Айди документа не может быть пустым") Long> ids,
 
         @NotBlank(message = "Поле инициатора пропущено")
         String initiator,
@@ -0,0 +1,10 @@
+package ru.arapov.itqgrouptask.dto;
+
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+
+public record CachedDocument(
+        byte[] json,
+        String etag,
+        DocumentStatus status
+) {
+}
@@ -0,0 +1,12 @@
+package ru.arapov.itqgrouptask.dto;
+
+import java.util.List;
+
+public record CursorPage<T>(
+        List<T> content,
+        int size,
+        String nextCursor,
+        Long totalElements,
+        SearchTotal.Kind totalKind
+) {
+}
@@ -0,0 +1,27 @@
+package ru.arapov.itqgrouptask.dto;
+
+import ru.arapov.itqgrouptask.model.DocumentAction;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+import java.time.LocalDateTime;
+
+public record DocumentChange(
+        Long id,
+        String cursor,
+        Long documentId,
+        String documentNumber,
+        DocumentAction action,
+        DocumentStatus status,
+        String initiator,
+        LocalDateTime timestamp,
+        String comment
+) {
+    public DocumentChange(Long id, Long txId, Long documentId, String documentNumber, DocumentAction action,
+                          String initiator, LocalDateTime timestamp, String comment) {
+        this(id, txId + ":" + id, documentId, documentNumber, action, switch (action) {
+            case CREATE -> DocumentStatus.DRAFT;
+            case SUBMIT -> DocumentStatus.SUBMITTED;
+            case APPROVE -> DocumentStatus.APPROVED;
+            case REVERT -> DocumentStatus.REGISTRY_REJECTED;
+        }, initiator, timestamp, comment);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.arapov.itqgrouptask.dto;
+
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+import java.time.LocalDateTime;
+
+public record DocumentExportRow(
+        Long id,
+        String documentNumber,
+        String author,
+        String title,
+        DocumentStatus status,
+        String initiator,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+}
@@ -13,6 +13,7 @@ public record DocumentRequest(
         String title,
 
         @NotBlank(message = "Поле инициатора пропущено")
+        @Size(max = 255, message = "Инициатор не может быть длиннее 255 символов")
         String initiator
 ) {
 }
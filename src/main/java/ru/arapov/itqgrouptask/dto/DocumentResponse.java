@@ -3,8 +3,10 @@ package ru.arapov.itqgrouptask.dto;
 import ru.arapov.itqgrouptask.model.Document;
 import ru.arapov.itqgrouptask.model.DocumentStatus;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public record DocumentResponse(
@@ -19,13 +21,30 @@ public record DocumentResponse(
         List<HistoryResponse> history
 ) {
     public static DocumentResponse from(Document document) {
+        return from(document, Collections.emptyList());
+    }
+
+    public static DocumentResponse from(Document document, List<HistoryResponse> archivedHistory) {
         List<HistoryResponse> historyList = document.getHistory() != null
                 ? document.getHistory().stream()
                 .map(HistoryResponse::from)
                 .collect(Collectors.toList())
                 : Collections.emptyList();
 
+        if (!archivedHistory.isEmpty()) {
+            Set<Long> hotIds = historyList.stream().map(HistoryResponse::id).collect(Collectors.toSet());
+            List<HistoryResponse> merged = new ArrayList<>(archivedHistory.size() + historyList.size());
+            archivedHistory.stream()
+                    .filter(entry -> !hotIds.contains(entry.id()))
+                    .forEach(merged::add);
+            merged.addAll(historyList);
+            historyList = merged;
+        }
+
+        return withHistory(document, historyList);
+    }
 
+    public static DocumentResponse withHistory(Document document, List<HistoryResponse> history) {
         return new DocumentResponse(
                 document.getId(),
                 document.getDocumentNumber(),
@@ -35,7 +54,7 @@ public record DocumentResponse(
                 document.getInitiator(),
                 document.getCreatedAt(),
                 document.getUpdatedAt(),
-                historyList
+                history
         );
     }
 }
@@ -0,0 +1,12 @@
+package ru.arapov.itqgrouptask.dto;
+
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+import java.time.LocalDateTime;
+
+public record DocumentSearchFilter(
+        DocumentStatus status,
+        String author,
+        LocalDateTime fromDate,
+        LocalDateTime toDate
+) {
+}
@@ -0,0 +1,19 @@
+package ru.arapov.itqgrouptask.dto;
+
+import lombok.Builder;
+import java.util.Map;
+
+@Builder
+public record GeneratorReport(
+        String startedAt,
+        String mode,
+        int clients,
+        double targetRate,
+        long warmupSeconds,
+        long durationSeconds,
+        Map<String, Integer> mix,
+        long totalOperations,
+        double throughput,
+        Map<String, OperationLatency> operations
+) {
+}
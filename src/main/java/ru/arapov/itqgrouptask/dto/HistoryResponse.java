@@ -1,5 +1,6 @@
 package ru.arapov.itqgrouptask.dto;
 
+import ru.arapov.itqgrouptask.model.ArchivedHistoryEntry;
 import ru.arapov.itqgrouptask.model.DocumentAction;
 import ru.arapov.itqgrouptask.model.HistoryEntry;
 
@@ -21,4 +22,14 @@ public record HistoryResponse(
                 history.getComment()
         );
     }
+
+    public static HistoryResponse from(ArchivedHistoryEntry history) {
+        return new HistoryResponse(
+                history.getId(),
+                history.getInitiator(),
+                history.getTimestamp(),
+                history.getAction(),
+                history.getComment()
+        );
+    }
 }
@@ -0,0 +1,7 @@
+package ru.arapov.itqgrouptask.dto;
+
+public record ImportRejection(
+        long row,
+        String reason
+) {
+}
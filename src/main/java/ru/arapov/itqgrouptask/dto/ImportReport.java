@@ -0,0 +1,16 @@
+package ru.arapov.itqgrouptask.dto;
+
+import lombok.Builder;
+import java.util.List;
+
+@Builder
+public record ImportReport(
+        ExportFormat format,
+        long totalRows,
+        long importedRows,
+        long rejectedRows,
+        List<ImportRejection> rejections,
+        boolean rejectionsTruncated,
+        long totalTime
+) {
+}
@@ -0,0 +1,22 @@
+package ru.arapov.itqgrouptask.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+
+public record LargeBulkOperationRequest(
+
+        @NotEmpty(message = "Список айди не может быть пустым")
+        @Size(max = 100000, message = "Нельзя обрабатывать больше, чем 100000 документов за раз")
+        List<@NotNull(message = "Айди документа не может быть пустым") Long> ids,
+
+        @NotBlank(message = "Поле инициатора пропущено")
+        String initiator,
+
+        @Size(max = 500, message = "Комментарий не может содержать более 500 символов")
+        String comment
+) {
+}
@@ -0,0 +1,18 @@
+package ru.arapov.itqgrouptask.dto;
+
+import lombok.Builder;
+
+@Builder
+public record OperationLatency(
+        long count,
+        long errors,
+        double throughput,
+        double meanMs,
+        double p50Ms,
+        double p90Ms,
+        double p99Ms,
+        double p999Ms,
+        double maxMs,
+        String histogram
+) {
+}
@@ -1,6 +1,7 @@
 package ru.arapov.itqgrouptask.dto;
 
 import lombok.Builder;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
 
 @Builder
 public record OperationResult(
@@ -8,6 +9,32 @@ public record OperationResult(
         ResultStatus status,
         String message
 ) {
+    public static OperationResult forTransition(Long id, DocumentStatus currentStatus, DocumentStatus expectedStatus,
+                                                String successMessage) {
+        if (currentStatus == null) {
+            return OperationResult.builder()
+                    .id(id)
+                    .status(ResultStatus.NOT_FOUND)
+                    .message("Документ не найден с id: " + id)
+                    .build();
+        }
+
+        if (currentStatus != expectedStatus) {
+            return OperationResult.builder()
+                    .id(id)
+                    .status(ResultStatus.CONFLICT)
+                    .message(String.format("Документ в статусе %s. Ожидался статус %s",
+                            currentStatus, expectedStatus))
+                    .build();
+        }
+
+        return OperationResult.builder()
+                .id(id)
+                .status(ResultStatus.SUCCESS)
+                .message(successMessage)
+                .build();
+    }
+
     public enum ResultStatus {
         SUCCESS,
         CONFLICT,
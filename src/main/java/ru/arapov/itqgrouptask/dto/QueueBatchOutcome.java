@@ -0,0 +1,10 @@
+package ru.arapov.itqgrouptask.dto;
+
+public record QueueBatchOutcome(
+        int processed,
+        int succeeded
+) {
+    public double conflictRate() {
+        return processed == 0 ? 0 : (double) (processed - succeeded) / processed;
+    }
+}
@@ -0,0 +1,9 @@
+package ru.arapov.itqgrouptask.dto;
+
+import org.springframework.data.domain.Page;
+
+public record SearchPage<T>(
+        Page<T> page,
+        SearchTotal.Kind totalKind
+) {
+}
@@ -0,0 +1,12 @@
+package ru.arapov.itqgrouptask.dto;
+
+public record SearchTotal(
+        long value,
+        Kind kind
+) {
+    public enum Kind {
+        EXACT,
+        CACHED,
+        APPROXIMATE
+    }
+}
@@ -0,0 +1,26 @@
+package ru.arapov.itqgrouptask.dto;
+
+import lombok.Builder;
+import java.util.List;
+import java.util.Map;
+
+@Builder
+public record StressTestReport(
+        int documents,
+        int threads,
+        int attempts,
+        double hotKeyRatio,
+        int batchSize,
+        Map<String, Integer> mix,
+        long totalOperations,
+        long totalTime,
+        double throughput,
+        Map<String, OperationLatency> operations,
+        Map<String, Map<String, Long>> outcomes,
+        long deadlocks,
+        long serializationFailures,
+        double lockWaitMs,
+        int maxLockWaiters,
+        List<String> invariantViolations
+) {
+}
@@ -0,0 +1,41 @@
+package ru.arapov.itqgrouptask.dto;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Builder;
+import ru.arapov.itqgrouptask.utils.StressOperation;
+import java.util.Map;
+
+@Builder
+public record StressTestRequest(
+
+        @Min(value = 1, message = "Нужен хотя бы один документ")
+        @Max(value = 10000, message = "Нельзя использовать больше 10000 документов")
+        Integer documents,
+
+        @Min(value = 1, message = "Нужен хотя бы один поток")
+        @Max(value = 10000, message = "Нельзя запускать больше 10000 потоков")
+        Integer threads,
+
+        @Min(value = 1, message = "Нужна хотя бы одна операция на поток")
+        @Max(value = 100000, message = "Нельзя выполнять больше 100000 операций на поток")
+        Integer attempts,
+
+        @DecimalMin(value = "0.0", message = "Доля горячего ключа от 0 до 1")
+        @DecimalMax(value = "1.0", message = "Доля горячего ключа от 0 до 1")
+        Double hotKeyRatio,
+
+        @Min(value = 1, message = "Размер пакета не может быть меньше 1")
+        @Max(value = 1000, message = "Размер пакета не может быть больше 1000")
+        Integer batchSize,
+
+        Map<StressOperation, Integer> mix
+) {
+    @AssertTrue(message = "Смесь операций должна содержать хотя бы одну операцию с положительным весом")
+    public boolean isMixValid() {
+        return mix == null || mix.values().stream().anyMatch(weight -> weight != null && weight > 0);
+    }
+}
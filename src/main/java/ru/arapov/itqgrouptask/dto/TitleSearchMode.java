@@ -0,0 +1,6 @@
+package ru.arapov.itqgrouptask.dto;
+
+public enum TitleSearchMode {
+    FULLTEXT,
+    FUZZY
+}
@@ -0,0 +1,15 @@
+package ru.arapov.itqgrouptask.dto;
+
+import lombok.Builder;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+
+@Builder
+public record WorkerQueueStats(
+        String queue,
+        DocumentStatus status,
+        long depth,
+        long oldestAgeSeconds,
+        int batchSize,
+        int consumers
+) {
+}
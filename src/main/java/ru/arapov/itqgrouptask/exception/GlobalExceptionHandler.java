@@ -33,4 +33,15 @@ public class GlobalExceptionHandler {
                 request.getDescription(false).replace("uri=", "")
         );
     }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleInvalidCursor(InvalidCursorException ex, WebRequest request) {
+        log.error("некорректный курсор: {}", ex.getMessage());
+        return new ErrorResponse(
+                "некорректный курсор",
+                ex.getMessage(),
+                request.getDescription(false).replace("uri=", "")
+        );
+    }
 }
@@ -0,0 +1,7 @@
+package ru.arapov.itqgrouptask.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.arapov.itqgrouptask.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Table(name = "approval_outbox")
+public class ApprovalOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(name = "document_id", nullable = false)
+    Long documentId;
+
+    @Column(nullable = false)
+    String approvedBy;
+
+    @Column(nullable = false)
+    LocalDateTime approvedAt;
+
+    @Column(nullable = false)
+    int attempts;
+
+    @Column(nullable = false, insertable = false)
+    LocalDateTime nextAttemptAt;
+
+    String lastError;
+}
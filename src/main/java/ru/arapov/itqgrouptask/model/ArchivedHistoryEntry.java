@@ -0,0 +1,35 @@
+package ru.arapov.itqgrouptask.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Immutable
+@NoArgsConstructor
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Table(name = "history_archive")
+public class ArchivedHistoryEntry {
+
+    @Id
+    Long id;
+
+    @Column(name = "document_id", nullable = false)
+    Long documentId;
+
+    @Column(nullable = false)
+    String initiator;
+
+    @Column(nullable = false)
+    LocalDateTime timestamp;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    DocumentAction action;
+
+    String comment;
+}
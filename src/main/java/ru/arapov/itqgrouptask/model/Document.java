@@ -20,7 +20,8 @@ import java.util.List;
 public class Document {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "documents_seq")
+    @SequenceGenerator(name = "documents_seq", sequenceName = "documents_id_seq", allocationSize = 50)
     Long id;
 
     @Column(name = "document_number", unique = true, nullable = false)
@@ -45,6 +46,10 @@ public class Document {
     @UpdateTimestamp
     LocalDateTime updatedAt;
 
+    @Version
+    @Column(nullable = false)
+    Long version;
+
     @OneToMany(mappedBy = "document", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     List<HistoryEntry> history = new ArrayList<>();
 }
@@ -3,5 +3,6 @@ package ru.arapov.itqgrouptask.model;
 public enum DocumentAction {
     CREATE,
     SUBMIT,
-    APPROVE
+    APPROVE,
+    REVERT
 }
@@ -3,5 +3,6 @@ package ru.arapov.itqgrouptask.model;
 public enum DocumentStatus {
     DRAFT,
     SUBMITTED,
-    APPROVED
+    APPROVED,
+    REGISTRY_REJECTED
 }
@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 public class HistoryEntry {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "history_seq")
+    @SequenceGenerator(name = "history_seq", sequenceName = "history_id_seq", allocationSize = 50)
     Long id;
 
     @ManyToOne
@@ -34,4 +35,7 @@ public class HistoryEntry {
     DocumentAction action;
 
     String comment;
+
+    @Column(name = "tx_id", nullable = false, insertable = false, updatable = false)
+    Long txId;
 }
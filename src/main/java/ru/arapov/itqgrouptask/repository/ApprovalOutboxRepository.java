@@ -0,0 +1,50 @@
+package ru.arapov.itqgrouptask.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.arapov.itqgrouptask.model.ApprovalOutboxEntry;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ApprovalOutboxRepository extends JpaRepository<ApprovalOutboxEntry, Long> {
+
+    @Query(value = "INSERT INTO approval_outbox (document_id, approved_by, approved_at) " +
+            "SELECT document_id, :approvedBy, :approvedAt " +
+            "FROM unnest(CAST(:documentIds AS bigint[])) AS r(document_id) " +
+            "RETURNING id",
+            nativeQuery = true)
+    List<Long> insertBatch(@Param("documentIds") Long[] documentIds,
+                           @Param("approvedBy") String approvedBy,
+                           @Param("approvedAt") LocalDateTime approvedAt);
+
+    @Query(value = "SELECT * FROM approval_outbox WHERE next_attempt_at <= LOCALTIMESTAMP " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<ApprovalOutboxEntry> claimBatch(@Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM approval_outbox WHERE id = :id AND next_attempt_at <= LOCALTIMESTAMP " +
+            "FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    Optional<ApprovalOutboxEntry> claimById(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM ApprovalOutboxEntry o WHERE o.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "UPDATE approval_outbox SET attempts = attempts + 1, last_error = :error, " +
+            "next_attempt_at = LOCALTIMESTAMP + make_interval(secs => " +
+            "least(:maxDelayMillis, :initialDelayMillis * power(2, least(attempts, 30))) / 1000.0) " +
+            "WHERE id IN (:ids)",
+            nativeQuery = true)
+    int recordFailure(@Param("ids") Collection<Long> ids,
+                      @Param("error") String error,
+                      @Param("initialDelayMillis") long initialDelayMillis,
+                      @Param("maxDelayMillis") long maxDelayMillis);
+}
@@ -1,10 +1,51 @@
 package ru.arapov.itqgrouptask.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.arapov.itqgrouptask.model.ApprovalRegistry;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface ApprovalRegistryRepository extends JpaRepository<ApprovalRegistry, Long> {
     boolean existsByDocumentId(Long documentId);
+
+    @Query(value = "INSERT INTO approval_registry (document_id, approved_by, approved_at) " +
+            "SELECT r.document_id, :approvedBy, :approvedAt " +
+            "FROM unnest(CAST(:documentIds AS bigint[])) AS r(document_id) " +
+            "ON CONFLICT DO NOTHING " +
+            "RETURNING document_id",
+            nativeQuery = true)
+    List<Long> insertBatch(@Param("documentIds") Long[] documentIds,
+                           @Param("approvedBy") String approvedBy,
+                           @Param("approvedAt") LocalDateTime approvedAt);
+
+    @Query(value = "INSERT INTO approval_registry (document_id, approved_by, approved_at) " +
+            "SELECT document_id, approved_by, approved_at FROM approval_outbox " +
+            "WHERE id = ANY(CAST(:outboxIds AS bigint[])) " +
+            "ON CONFLICT DO NOTHING " +
+            "RETURNING document_id",
+            nativeQuery = true)
+    List<Long> insertFromOutbox(@Param("outboxIds") Long[] outboxIds);
+
+    @Modifying
+    @Query(value = "UPDATE approval_registry r SET registry_number = n.registry_number " +
+            "FROM unnest(CAST(:documentIds AS bigint[]), CAST(:registryNumbers AS varchar[])) " +
+            "AS n(document_id, registry_number) " +
+            "WHERE r.document_id = n.document_id",
+            nativeQuery = true)
+    int assignRegistryNumbers(@Param("documentIds") Long[] documentIds,
+                              @Param("registryNumbers") String[] registryNumbers);
+
+    @Query("SELECT r.document.id FROM ApprovalRegistry r WHERE r.document.id IN :documentIds")
+    List<Long> findRegisteredDocumentIds(@Param("documentIds") Collection<Long> documentIds);
+
+    @Query(value = "UPDATE registry_number_counter SET last_value = last_value + :count WHERE id = 1 " +
+            "RETURNING last_value",
+            nativeQuery = true)
+    long reserveRegistryNumbers(@Param("count") int count);
 }
@@ -1,44 +1,200 @@
 package ru.arapov.itqgrouptask.repository;
 
-import org.springframework.data.domain.Page;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.arapov.itqgrouptask.dto.DocumentExportRow;
 import ru.arapov.itqgrouptask.model.Document;
 import ru.arapov.itqgrouptask.model.DocumentStatus;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DocumentRepository extends JpaRepository<Document, Long> {
     @Query("SELECT d FROM Document d WHERE d.id IN :ids")
     List<Document> findAllByIdIn(@Param("ids") List<Long> ids);
 
-    @Query(value = "SELECT DISTINCT d FROM Document d " +
-            "LEFT JOIN FETCH d.history " +
+    @Query("SELECT d.id FROM Document d " +
             "WHERE (:status IS NULL OR d.status = :status) AND " +
             "(:author IS NULL OR d.author = :author) AND " +
             "(cast(:fromDate as date) IS NULL OR d.createdAt >= :fromDate) AND " +
-            "(cast(:toDate as date) IS NULL OR d.createdAt <= :toDate)",
-            countQuery = "SELECT COUNT(d) FROM Document d " +
-                    "WHERE (:status IS NULL OR d.status = :status) AND " +
-                    "(:author IS NULL OR d.author = :author) AND " +
-                    "(cast(:fromDate as date) IS NULL OR d.createdAt >= :fromDate) AND " +
-                    "(cast(:toDate as date) IS NULL OR d.createdAt <= :toDate)")
-    Page<Document> searchDocuments(@Param("status") DocumentStatus status,
+            "(cast(:toDate as date) IS NULL OR d.createdAt <= :toDate)")
+    List<Long> searchDocumentIds(@Param("status") DocumentStatus status,
+                                 @Param("author") String author,
+                                 @Param("fromDate") LocalDateTime fromDate,
+                                 @Param("toDate") LocalDateTime toDate,
+                                 Pageable pageable);
+
+    @Query("SELECT d FROM Document d " +
+            "WHERE (:status IS NULL OR d.status = :status) AND " +
+            "(:author IS NULL OR d.author = :author) AND " +
+            "(cast(:fromDate as date) IS NULL OR d.createdAt >= :fromDate) AND " +
+            "(cast(:toDate as date) IS NULL OR d.createdAt <= :toDate) " +
+            "ORDER BY d.createdAt DESC, d.id DESC")
+    List<Document> searchDocumentsFirst(@Param("status") DocumentStatus status,
+                                        @Param("author") String author,
+                                        @Param("fromDate") LocalDateTime fromDate,
+                                        @Param("toDate") LocalDateTime toDate,
+                                        Limit limit);
+
+    @Query("SELECT d FROM Document d " +
+            "WHERE (:status IS NULL OR d.status = :status) AND " +
+            "(:author IS NULL OR d.author = :author) AND " +
+            "(cast(:fromDate as date) IS NULL OR d.createdAt >= :fromDate) AND " +
+            "(cast(:toDate as date) IS NULL OR d.createdAt <= :toDate) AND " +
+            "(d.createdAt, d.id) < (:cursorCreatedAt, :cursorId) " +
+            "ORDER BY d.createdAt DESC, d.id DESC")
+    List<Document> searchDocumentsAfter(@Param("status") DocumentStatus status,
+                                        @Param("author") String author,
+                                        @Param("fromDate") LocalDateTime fromDate,
+                                        @Param("toDate") LocalDateTime toDate,
+                                        @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                        @Param("cursorId") Long cursorId,
+                                        Limit limit);
+
+    @Query("SELECT COUNT(d) FROM Document d " +
+            "WHERE (:status IS NULL OR d.status = :status) AND " +
+            "(:author IS NULL OR d.author = :author) AND " +
+            "(cast(:fromDate as date) IS NULL OR d.createdAt >= :fromDate) AND " +
+            "(cast(:toDate as date) IS NULL OR d.createdAt <= :toDate)")
+    long countDocuments(@Param("status") DocumentStatus status,
+                        @Param("author") String author,
+                        @Param("fromDate") LocalDateTime fromDate,
+                        @Param("toDate") LocalDateTime toDate);
+
+    @Query(value = "EXPLAIN SELECT 1 FROM documents " +
+            "WHERE (CAST(:status AS varchar) IS NULL OR status = CAST(:status AS varchar)) AND " +
+            "(CAST(:author AS varchar) IS NULL OR author = CAST(:author AS varchar)) AND " +
+            "(CAST(:fromDate AS timestamp) IS NULL OR created_at >= CAST(:fromDate AS timestamp)) AND " +
+            "(CAST(:toDate AS timestamp) IS NULL OR created_at <= CAST(:toDate AS timestamp))",
+            nativeQuery = true)
+    List<String> explainSearch(@Param("status") String status,
+                               @Param("author") String author,
+                               @Param("fromDate") LocalDateTime fromDate,
+                               @Param("toDate") LocalDateTime toDate);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new ru.arapov.itqgrouptask.dto.DocumentExportRow(" +
+            "d.id, d.documentNumber, d.author, d.title, d.status, d.initiator, d.createdAt, d.updatedAt) " +
+            "FROM Document d " +
+            "WHERE (:status IS NULL OR d.status = :status) AND " +
+            "(:author IS NULL OR d.author = :author) AND " +
+            "(cast(:fromDate as date) IS NULL OR d.createdAt >= :fromDate) AND " +
+            "(cast(:toDate as date) IS NULL OR d.createdAt <= :toDate) " +
+            "ORDER BY d.createdAt DESC, d.id DESC")
+    Stream<DocumentExportRow> streamForExport(@Param("status") DocumentStatus status,
                                               @Param("author") String author,
                                               @Param("fromDate") LocalDateTime fromDate,
-                                              @Param("toDate") LocalDateTime toDate,
-                                              Pageable pageable);
+                                              @Param("toDate") LocalDateTime toDate);
+
+    @Query("SELECT d FROM Document d LEFT JOIN FETCH d.history WHERE d.id = :id")
+    Optional<Document> findWithHistoryById(@Param("id") Long id);
+
+    @Query("SELECT DISTINCT d FROM Document d LEFT JOIN FETCH d.history WHERE d.id IN :ids")
+    List<Document> findAllWithHistoryByIdIn(@Param("ids") Collection<Long> ids);
 
-    @Query(value = "SELECT * FROM documents WHERE status = ?1 ORDER BY created_at LIMIT ?2 FOR UPDATE SKIP LOCKED",
+    @Query(value = "SELECT id FROM documents WHERE status = :status " +
+            "ORDER BY created_at, id LIMIT :limit FOR UPDATE SKIP LOCKED",
             nativeQuery = true)
-    List<Document> findAndLockDocuments(String status, int limit);
+    List<Long> findAndLockQueue(@Param("status") String status, @Param("limit") int limit);
 
-    @Modifying
-    @Query("UPDATE Document d SET d.status = :newStatus WHERE d.id IN :ids")
-    int bulkUpdateStatus(@Param("ids") List<Long> ids, @Param("newStatus") DocumentStatus newStatus);
+    long countByStatus(DocumentStatus status);
+
+    @Query("SELECT MIN(d.createdAt) FROM Document d WHERE d.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") DocumentStatus status);
+
+    @Query(value = "SELECT id, status FROM documents WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+            nativeQuery = true)
+    List<DocumentStatusView> lockStatusesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "WITH updated AS (" +
+            "UPDATE documents SET status = :newStatus, updated_at = :updatedAt, version = version + 1 " +
+            "WHERE id = ANY(CAST(:ids AS bigint[])) AND status = :expectedStatus RETURNING id), " +
+            "logged AS (" +
+            "INSERT INTO history (document_id, initiator, timestamp, action, comment) " +
+            "SELECT id, :initiator, :updatedAt, :action, :comment FROM updated ORDER BY id " +
+            "RETURNING document_id) " +
+            "SELECT document_id FROM logged",
+            nativeQuery = true)
+    List<Long> transitionStatusBatch(@Param("ids") Long[] ids,
+                                     @Param("expectedStatus") String expectedStatus,
+                                     @Param("newStatus") String newStatus,
+                                     @Param("updatedAt") LocalDateTime updatedAt,
+                                     @Param("action") String action,
+                                     @Param("initiator") String initiator,
+                                     @Param("comment") String comment);
+
+    @Query(value = "SELECT nextval('document_number_seq')", nativeQuery = true)
+    long nextDocumentNumberBlock();
+
+    @Query(value = "SELECT increment_by FROM pg_sequences WHERE sequencename = 'document_number_seq'",
+            nativeQuery = true)
+    long documentNumberBlockSize();
+
+    @Query(value = "WITH updated AS (" +
+            "UPDATE documents SET status = :newStatus, updated_at = :updatedAt, version = version + 1 " +
+            "WHERE id = :id AND status = :expectedStatus RETURNING id, version), " +
+            "logged AS (" +
+            "INSERT INTO history (document_id, initiator, timestamp, action, comment) " +
+            "SELECT id, :initiator, :updatedAt, :action, :comment FROM updated) " +
+            "SELECT version FROM updated",
+            nativeQuery = true)
+    List<Long> compareAndSetStatus(@Param("id") Long id,
+                                   @Param("expectedStatus") String expectedStatus,
+                                   @Param("newStatus") String newStatus,
+                                   @Param("updatedAt") LocalDateTime updatedAt,
+                                   @Param("action") String action,
+                                   @Param("initiator") String initiator,
+                                   @Param("comment") String comment);
+
+    @Query("SELECT d.status FROM Document d WHERE d.id = :id")
+    Optional<DocumentStatus> findStatusById(@Param("id") Long id);
+
+    @Query(value = "SELECT d.id AS id, ts_rank(d.title_tsv, q.query) AS rank " +
+            "FROM documents d, websearch_to_tsquery('russian', :query) AS q(query) " +
+            "WHERE d.title_tsv @@ q.query " +
+            "ORDER BY rank DESC, d.id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<TitleSearchHit> searchTitleFirst(@Param("query") String query, @Param("limit") int limit);
+
+    @Query(value = "SELECT d.id AS id, ts_rank(d.title_tsv, q.query) AS rank " +
+            "FROM documents d, websearch_to_tsquery('russian', :query) AS q(query) " +
+            "WHERE d.title_tsv @@ q.query " +
+            "AND (ts_rank(d.title_tsv, q.query), d.id) < (CAST(:rank AS real), :id) " +
+            "ORDER BY rank DESC, d.id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<TitleSearchHit> searchTitleAfter(@Param("query") String query,
+                                          @Param("rank") float rank,
+                                          @Param("id") Long id,
+                                          @Param("limit") int limit);
+
+    @Query(value = "SELECT d.id AS id, word_similarity(:query, d.title) AS rank " +
+            "FROM documents d " +
+            "WHERE :query <% d.title " +
+            "ORDER BY rank DESC, d.id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<TitleSearchHit> searchTitleFuzzyFirst(@Param("query") String query, @Param("limit") int limit);
+
+    @Query(value = "SELECT d.id AS id, word_similarity(:query, d.title) AS rank " +
+            "FROM documents d " +
+            "WHERE :query <% d.title " +
+            "AND (word_similarity(:query, d.title), d.id) < (CAST(:rank AS real), :id) " +
+            "ORDER BY rank DESC, d.id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<TitleSearchHit> searchTitleFuzzyAfter(@Param("query") String query,
+                                               @Param("rank") float rank,
+                                               @Param("id") Long id,
+                                               @Param("limit") int limit);
 }
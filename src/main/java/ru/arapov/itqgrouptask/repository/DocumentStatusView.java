@@ -0,0 +1,9 @@
+package ru.arapov.itqgrouptask.repository;
+
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+
+public interface DocumentStatusView {
+    Long getId();
+
+    DocumentStatus getStatus();
+}
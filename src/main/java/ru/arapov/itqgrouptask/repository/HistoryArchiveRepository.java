@@ -0,0 +1,19 @@
+package ru.arapov.itqgrouptask.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.arapov.itqgrouptask.model.ArchivedHistoryEntry;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HistoryArchiveRepository extends JpaRepository<ArchivedHistoryEntry, Long> {
+
+    List<ArchivedHistoryEntry> findByDocumentIdInOrderByIdAsc(Collection<Long> documentIds);
+
+    List<ArchivedHistoryEntry> findByDocumentIdAndIdGreaterThanOrderByIdAsc(Long documentId, Long afterId,
+                                                                            Limit limit);
+
+    List<ArchivedHistoryEntry> findByDocumentIdOrderByIdDesc(Long documentId, Limit limit);
+}
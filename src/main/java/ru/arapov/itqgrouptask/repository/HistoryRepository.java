@@ -1,9 +1,38 @@
 package ru.arapov.itqgrouptask.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.arapov.itqgrouptask.dto.DocumentChange;
+import ru.arapov.itqgrouptask.model.DocumentAction;
 import ru.arapov.itqgrouptask.model.HistoryEntry;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface HistoryRepository extends JpaRepository<HistoryEntry, Long> {
+
+    @Query("SELECT h FROM HistoryEntry h WHERE h.document.id = :documentId AND h.id > :afterId ORDER BY h.id")
+    List<HistoryEntry> findPageAfter(@Param("documentId") Long documentId,
+                                     @Param("afterId") Long afterId,
+                                     Limit limit);
+
+    @Query("SELECT h FROM HistoryEntry h WHERE h.document.id = :documentId ORDER BY h.id DESC")
+    List<HistoryEntry> findLatest(@Param("documentId") Long documentId, Limit limit);
+
+    @Query("SELECT new ru.arapov.itqgrouptask.dto.DocumentChange(h.id, h.txId, d.id, d.documentNumber, h.action, " +
+            "h.initiator, h.timestamp, h.comment) " +
+            "FROM HistoryEntry h JOIN h.document d " +
+            "WHERE (h.txId, h.id) > (:afterTxId, :afterId) AND h.txId < :visibleBefore AND h.action IN :actions " +
+            "ORDER BY h.txId, h.id")
+    List<DocumentChange> findChangesAfter(@Param("afterTxId") Long afterTxId,
+                                          @Param("afterId") Long afterId,
+                                          @Param("visibleBefore") Long visibleBefore,
+                                          @Param("actions") Collection<DocumentAction> actions,
+                                          Limit limit);
+
+    @Query(value = "SELECT CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS text) AS bigint)", nativeQuery = true)
+    long findVisibleTxHorizon();
 }
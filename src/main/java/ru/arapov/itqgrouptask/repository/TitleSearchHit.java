@@ -0,0 +1,7 @@
+package ru.arapov.itqgrouptask.repository;
+
+public interface TitleSearchHit {
+    Long getId();
+
+    Float getRank();
+}
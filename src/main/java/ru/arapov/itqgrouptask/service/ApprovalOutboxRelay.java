@@ -0,0 +1,182 @@
+package ru.arapov.itqgrouptask.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.arapov.itqgrouptask.model.ApprovalOutboxEntry;
+import ru.arapov.itqgrouptask.model.DocumentAction;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+import ru.arapov.itqgrouptask.repository.ApprovalOutboxRepository;
+import ru.arapov.itqgrouptask.repository.DocumentRepository;
+import ru.arapov.itqgrouptask.utils.ApprovalRegistryMode;
+import ru.arapov.itqgrouptask.utils.BackgroundWorkGate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * В режиме saga утверждение только меняет статус и пишет строку в approval_outbox той же транзакцией.
+ * Ретранслятор пакетами забирает строки outbox (FOR UPDATE SKIP LOCKED, поэтому узлы не мешают друг другу),
+ * передает их в ApprovalRegistrySink и удаляет. Компенсируются только документы, которые реестр явно отклонил:
+ * статус меняется на REGISTRY_REJECTED с записью REVERT в истории. Этот статус конечный и ни в одну очередь
+ * не входит, иначе воркер снова утвердил бы документ и постоянный отказ реестра превратился бы в бесконечный цикл
+ * утверждение/откат. Исключение приемника считается временным сбоем: пакет повторяется по одной записи, чтобы
+ * одна плохая запись не задерживала остальные, а упавшие записи откладываются через next_attempt_at
+ * с экспоненциальной задержкой от approval.retry-initial-delay до approval.retry-max-delay и в конечный статус
+ * не попадают. После MAX_CONSECUTIVE_FAILURES ошибок подряд реестр считается недоступным и остаток пакета
+ * откладывается без отдельных вызовов.
+ */
+@Service
+@Slf4j
+public class ApprovalOutboxRelay {
+
+    private static final String INITIATOR = "SYSTEM";
+
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+    private final ApprovalOutboxRepository approvalOutboxRepository;
+
+    private final DocumentRepository documentRepository;
+
+    private final ApprovalRegistrySink approvalRegistrySink;
+
+    private final DocumentCountService documentCountService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BackgroundWorkGate workGate;
+
+    private final ApprovalRegistryMode registryMode;
+
+    private final int batchSize;
+
+    private final long retryInitialDelay;
+
+    private final long retryMaxDelay;
+
+    public ApprovalOutboxRelay(ApprovalOutboxRepository approvalOutboxRepository,
+                               DocumentRepository documentRepository,
+                               ApprovalRegistrySink approvalRegistrySink,
+                               DocumentCountService documentCountService,
+                               TransactionTemplate transactionTemplate,
+                               BackgroundWorkGate workGate,
+                               @Value("${approval.registry-mode:sync}") ApprovalRegistryMode registryMode,
+                               @Value("${approval.relay-batch-size:500}") int batchSize,
+                               @Value("${approval.retry-initial-delay:1000}") long retryInitialDelay,
+                               @Value("${approval.retry-max-delay:300000}") long retryMaxDelay) {
+        this.approvalOutboxRepository = approvalOutboxRepository;
+        this.documentRepository = documentRepository;
+        this.approvalRegistrySink = approvalRegistrySink;
+        this.documentCountService = documentCountService;
+        this.transactionTemplate = transactionTemplate;
+        this.workGate = workGate;
+        this.registryMode = registryMode;
+        this.batchSize = batchSize;
+        this.retryInitialDelay = retryInitialDelay;
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    @Scheduled(initialDelayString = "${approval.relay-delay:1000}",
+            fixedDelayString = "${approval.relay-interval:1000}")
+    public void relay() {
+        if (registryMode != ApprovalRegistryMode.SAGA || !workGate.tryEnter()) {
+            return;
+        }
+
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed == batchSize);
+        } finally {
+            workGate.exit();
+        }
+    }
+
+    public int relayBatch() {
+        List<ApprovalOutboxEntry> claimed = new ArrayList<>();
+        try {
+            Integer relayed = transactionTemplate.execute(status -> {
+                List<ApprovalOutboxEntry> entries = approvalOutboxRepository.claimBatch(batchSize);
+                claimed.addAll(entries);
+                return entries.isEmpty() ? 0 : deliver(entries);
+            });
+            return relayed != null ? relayed : 0;
+        } catch (RuntimeException e) {
+            if (claimed.isEmpty()) {
+                log.error("Ошибка чтения outbox реестра: {}", e.getMessage());
+                return 0;
+            }
+            log.warn("Ошибка записи пакета в реестр, записи повторяются по одной. Записей outbox: {}, Ошибка: {}",
+                    claimed.size(), errorMessage(e));
+            relayOneByOne(claimed);
+            return 0;
+        }
+    }
+
+    private int deliver(List<ApprovalOutboxEntry> entries) {
+        Set<Long> accepted = approvalRegistrySink.register(entries);
+        List<ApprovalOutboxEntry> rejected = entries.stream()
+                .filter(entry -> !accepted.contains(entry.getDocumentId()))
+                .toList();
+
+        compensate(rejected, "реестр отклонил запись");
+        approvalOutboxRepository.deleteByIds(entries.stream().map(ApprovalOutboxEntry::getId).toList());
+
+        log.info("Outbox реестра: пакет передан. Записей: {}, Отклонено: {}", entries.size(), rejected.size());
+        return entries.size();
+    }
+
+    private void relayOneByOne(List<ApprovalOutboxEntry> entries) {
+        int consecutiveFailures = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Long id = entries.get(i).getId();
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        approvalOutboxRepository.claimById(id).ifPresent(entry -> deliver(List.of(entry))));
+                consecutiveFailures = 0;
+            } catch (RuntimeException e) {
+                recordFailure(List.of(id), e);
+                if (++consecutiveFailures == MAX_CONSECUTIVE_FAILURES) {
+                    List<Long> remaining = entries.subList(i + 1, entries.size()).stream()
+                            .map(ApprovalOutboxEntry::getId)
+                            .toList();
+                    if (!remaining.isEmpty()) {
+                        recordFailure(remaining, e);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private void recordFailure(List<Long> ids, RuntimeException error) {
+        String message = errorMessage(error);
+        log.error("Ошибка записи в реестр, записи отложены. Записей outbox: {}, Ошибка: {}", ids.size(), message);
+
+        transactionTemplate.executeWithoutResult(status ->
+                approvalOutboxRepository.recordFailure(ids, message, retryInitialDelay, retryMaxDelay));
+    }
+
+    private static String errorMessage(RuntimeException error) {
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+
+    private void compensate(List<ApprovalOutboxEntry> entries, String reason) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        List<Long> revertedIds = documentRepository.transitionStatusBatch(
+                entries.stream().map(ApprovalOutboxEntry::getDocumentId).distinct().toArray(Long[]::new),
+                DocumentStatus.APPROVED.name(), DocumentStatus.REGISTRY_REJECTED.name(), LocalDateTime.now(),
+                DocumentAction.REVERT.name(), INITIATOR, "Утверждение отменено: " + reason);
+
+        documentCountService.invalidateTransition(DocumentStatus.APPROVED, DocumentStatus.REGISTRY_REJECTED);
+
+        log.warn("Утверждение отменено компенсацией. Документов: {}, Причина: {}", revertedIds.size(), reason);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.arapov.itqgrouptask.service;
+
+import ru.arapov.itqgrouptask.model.ApprovalOutboxEntry;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Приемник записей реестра для утверждения в режиме saga. Возвращает id документов, которые реестр принял
+ * (в том числе зарегистрированные ранее), остальные документы пакета считаются окончательно отклоненными
+ * и компенсируются. Исключение считается временным сбоем: записи остаются в outbox и повторяются с задержкой,
+ * к компенсации оно не приводит.
+ */
+public interface ApprovalRegistrySink {
+
+    Set<Long> register(List<ApprovalOutboxEntry> entries);
+}
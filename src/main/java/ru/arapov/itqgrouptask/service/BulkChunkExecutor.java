@@ -0,0 +1,108 @@
+package ru.arapov.itqgrouptask.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.arapov.itqgrouptask.dto.OperationResult;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+@Service
+@Slf4j
+public class BulkChunkExecutor {
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private final int chunkSize;
+
+    private final Semaphore connectionLimiter;
+
+    public BulkChunkExecutor(DataSource dataSource,
+                             @Value("${bulk.chunk-size:1000}") int chunkSize,
+                             @Value("${bulk.reserved-connections:2}") int reservedConnections) {
+        int poolSize = resolvePoolSize(dataSource);
+        int permits = Math.max(1, poolSize - reservedConnections);
+
+        this.chunkSize = chunkSize;
+        this.connectionLimiter = new Semaphore(permits, true);
+
+        log.info("Параллельная обработка пакетов. Размер чанка: {}, Одновременных чанков: {} (пул соединений: {})",
+                chunkSize, permits, poolSize);
+    }
+
+    public List<OperationResult> execute(List<Long> ids, Function<List<Long>, List<OperationResult>> chunkHandler) {
+        List<Long> uniqueIds = ids.stream().distinct().toList();
+        List<Long> sortedIds = uniqueIds.stream().sorted().toList();
+
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < sortedIds.size(); from += chunkSize) {
+            chunks.add(sortedIds.subList(from, Math.min(from + chunkSize, sortedIds.size())));
+        }
+
+        Map<Long, OperationResult> resultsById = new HashMap<>(uniqueIds.size() * 2);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<OperationResult>>> futures = chunks.stream()
+                    .map(chunk -> executor.submit(() -> runChunk(chunk, chunkHandler)))
+                    .toList();
+
+            for (Future<List<OperationResult>> future : futures) {
+                for (OperationResult result : future.get()) {
+                    resultsById.put(result.id(), result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Обработка пакета прервана", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка при обработке пакета", e.getCause());
+        }
+
+        log.info("Обработано чанков: {}, Документов: {}", chunks.size(), uniqueIds.size());
+
+        return uniqueIds.stream()
+                .map(resultsById::get)
+                .toList();
+    }
+
+    private List<OperationResult> runChunk(List<Long> chunk, Function<List<Long>, List<OperationResult>> chunkHandler)
+            throws InterruptedException {
+        connectionLimiter.acquire();
+        try {
+            return chunkHandler.apply(chunk);
+        } catch (Exception e) {
+            log.error("Ошибка при обработке чанка из {} документов: {}", chunk.size(), e.getMessage());
+            return chunk.stream()
+                    .map(id -> OperationResult.builder()
+                            .id(id)
+                            .status(OperationResult.ResultStatus.CONFLICT)
+                            .message("Внутренняя ошибка сервера")
+                            .build())
+                    .toList();
+        } finally {
+            connectionLimiter.release();
+        }
+    }
+
+    private static int resolvePoolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            log.warn("Не удалось определить размер пула соединений: {}", e.getMessage());
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+}
@@ -1,16 +1,26 @@
 package ru.arapov.itqgrouptask.service;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import ru.arapov.itqgrouptask.dto.OperationResult;
-import ru.arapov.itqgrouptask.exception.RegistryException;
 import ru.arapov.itqgrouptask.model.*;
+import ru.arapov.itqgrouptask.repository.ApprovalOutboxRepository;
 import ru.arapov.itqgrouptask.repository.ApprovalRegistryRepository;
 import ru.arapov.itqgrouptask.repository.DocumentRepository;
+import ru.arapov.itqgrouptask.repository.DocumentStatusView;
+import ru.arapov.itqgrouptask.utils.ApprovalRegistryMode;
+import ru.arapov.itqgrouptask.utils.NumberGenerator;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -21,37 +31,47 @@ public class DocumentAtomicService {
 
     private final ApprovalRegistryRepository approvalRegistryRepository;
 
+    private final ApprovalOutboxRepository approvalOutboxRepository;
 
-    private final HistoryService historyService;
+    private final DocumentCountService documentCountService;
+
+    private final NumberGenerator numberGenerator;
+
+    private final DocumentMetrics documentMetrics;
+
+    private final EntityManager entityManager;
+
+    @Value("${approval.registry-mode:sync}")
+    private ApprovalRegistryMode registryMode;
 
     @Transactional
     public OperationResult submitAtomicDocument(Long id, String initiator, String comment) {
-        Document document = documentRepository.findById(id)
-                .orElse(null);
-        if (document == null) {
-            return OperationResult.builder()
-                    .id(id)
-                    .status(OperationResult.ResultStatus.NOT_FOUND)
-                    .message("Документ не найден с id: " + id)
-                    .build();
-        }
+        long startTime = System.nanoTime();
+        OperationResult result = submitDocument(id, initiator, comment);
+        documentMetrics.recordSingle(DocumentAction.SUBMIT, startTime, result.status());
+        return result;
+    }
 
-        if (document.getStatus() != DocumentStatus.DRAFT) {
-            log.warn("Недопустимый переход статуса. Документ ID: {}, Текущий статус: {}, Ожидаемый: DRAFT",
-                    id, document.getStatus());
+    @Transactional
+    public OperationResult approveAtomicDocument(Long id, String initiator, String comment) {
+        long startTime = System.nanoTime();
+        OperationResult result = approveDocument(id, initiator, comment);
+        documentMetrics.recordSingle(DocumentAction.APPROVE, startTime, result.status());
+        return result;
+    }
 
-            return OperationResult.builder()
-                    .id(id)
-                    .status(OperationResult.ResultStatus.CONFLICT)
-                    .message(String.format("Документ в статусе %s. Ожидался статус DRAFT",
-                            document.getStatus()))
-                    .build();
+    private OperationResult submitDocument(Long id, String initiator, String comment) {
+        List<Long> versions = documentRepository.compareAndSetStatus(id, DocumentStatus.DRAFT.name(),
+                DocumentStatus.SUBMITTED.name(), LocalDateTime.now(), DocumentAction.SUBMIT.name(),
+                initiator, comment != null ? comment : "");
+        if (versions.isEmpty()) {
+            return rejectedTransition(id, DocumentStatus.DRAFT);
         }
 
-        document.setStatus(DocumentStatus.SUBMITTED);
-        historyService.saveHistory(document, DocumentAction.SUBMIT, initiator, comment);
+        entityManager.clear();
+        documentCountService.invalidateTransition(DocumentStatus.DRAFT, DocumentStatus.SUBMITTED);
 
-        log.info("Документ {} успешно отправлен на согласование", id);
+        log.info("Документ {} успешно отправлен на согласование. Версия: {}", id, versions.getFirst());
 
         return OperationResult.builder()
                 .id(id)
@@ -60,69 +80,188 @@ public class DocumentAtomicService {
                 .build();
     }
 
-    @Transactional
-    public OperationResult approveAtomicDocument(Long id, String initiator, String comment) {
-        Document document = documentRepository.findById(id)
-                .orElse(null);
-        if (document == null) {
+    private OperationResult approveDocument(Long id, String initiator, String comment) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> versions = documentRepository.compareAndSetStatus(id, DocumentStatus.SUBMITTED.name(),
+                DocumentStatus.APPROVED.name(), now, DocumentAction.APPROVE.name(),
+                initiator, comment != null ? comment : "");
+        if (versions.isEmpty()) {
+            return rejectedTransition(id, DocumentStatus.SUBMITTED);
+        }
+        entityManager.clear();
+
+        if (registryMode == ApprovalRegistryMode.SAGA) {
+            approvalOutboxRepository.insertBatch(new Long[]{id}, initiator, now);
+            return approved(id, versions.getFirst());
+        }
+
+        List<Long> insertedIds = approvalRegistryRepository.findRegisteredDocumentIds(List.of(id)).isEmpty()
+                ? register(List.of(id), initiator, now)
+                : List.of();
+
+        if (insertedIds.isEmpty()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.error("Ошибка при создании записи в реестре для документа {}", id);
+
             return OperationResult.builder()
                     .id(id)
-                    .status(OperationResult.ResultStatus.NOT_FOUND)
-                    .message("Документ не найден с id: " + id)
+                    .status(OperationResult.ResultStatus.REGISTRY_ERROR)
+                    .message("Не удалось создать запись в реестре утверждений")
                     .build();
         }
 
-        if (document.getStatus() != DocumentStatus.SUBMITTED) {
-            log.warn("Недопустимый переход статуса. Документ ID: {}, Текущий статус: {}, Ожидаемый: SUBMITTED",
-                    id, document.getStatus());
+        return approved(id, versions.getFirst());
+    }
+
+    private OperationResult approved(Long id, Long version) {
+        documentCountService.invalidateTransition(DocumentStatus.SUBMITTED, DocumentStatus.APPROVED);
+
+        log.info("Документ {} успешно утвержден. Версия: {}", id, version);
+
+        return OperationResult.builder()
+                .id(id)
+                .status(OperationResult.ResultStatus.SUCCESS)
+                .message("Документ успешно утвержден")
+                .build();
+    }
+
+    private OperationResult rejectedTransition(Long id, DocumentStatus expectedStatus) {
+        DocumentStatus currentStatus = documentRepository.findStatusById(id).orElse(null);
+        if (currentStatus == expectedStatus) {
+            log.warn("Документ {} изменен параллельной операцией", id);
 
             return OperationResult.builder()
                     .id(id)
                     .status(OperationResult.ResultStatus.CONFLICT)
-                    .message(String.format("Документ в статусе %s. Ожидался статус SUBMITTED",
-                            document.getStatus()))
+                    .message("Документ изменен параллельной операцией, повторите запрос")
                     .build();
         }
+        return toBatchResult(id, currentStatus, expectedStatus, null);
+    }
 
-        try {
-            ApprovalRegistry registry = new ApprovalRegistry();
-            registry.setDocument(document);
-            registry.setApprovedBy(initiator);
-            registry.setApprovedAt(LocalDateTime.now());
-            registry.setRegistryNumber(generateRegistryNumber());
-            approvalRegistryRepository.save(registry);
-            log.info("Запись в реестре утверждений создана. Документ ID: {}, Номер в реестре: {}",
-                    id, registry.getRegistryNumber());
+    @Transactional
+    public List<OperationResult> submitBatch(List<Long> ids, String initiator, String comment) {
+        long startTime = System.nanoTime();
+        List<Long> uniqueIds = ids.stream().distinct().toList();
+        Map<Long, DocumentStatus> statuses = lockStatuses(uniqueIds);
 
-            document.setStatus(DocumentStatus.APPROVED);
-            historyService.saveHistory(document, DocumentAction.APPROVE, initiator, comment);
+        List<Long> eligibleIds = uniqueIds.stream()
+                .filter(id -> statuses.get(id) == DocumentStatus.DRAFT)
+                .toList();
 
-            log.info("Документ {} успешно утвержден", id);
+        if (!eligibleIds.isEmpty()) {
+            transitionBatch(eligibleIds, DocumentStatus.DRAFT, DocumentStatus.SUBMITTED, DocumentAction.SUBMIT,
+                    initiator, comment, LocalDateTime.now());
+            documentCountService.invalidateTransition(DocumentStatus.DRAFT, DocumentStatus.SUBMITTED);
+        }
 
-            return OperationResult.builder()
-                    .id(id)
-                    .status(OperationResult.ResultStatus.SUCCESS)
-                    .message("Документ успешно утвержден")
-                    .build();
+        log.info("Пакет отправлен на согласование. Уникальных ID: {}, Отправлено: {}",
+                uniqueIds.size(), eligibleIds.size());
 
-        } catch (Exception e) {
-            log.error("Ошибка при создании записи в реестре для документа {}: {}", id, e.getMessage());
+        List<OperationResult> results = uniqueIds.stream()
+                .map(id -> toBatchResult(id, statuses.get(id), DocumentStatus.DRAFT,
+                        "Документ успешно отправлен на согласование"))
+                .toList();
 
-            OperationResult.ResultStatus status = e instanceof RegistryException
-                    ? OperationResult.ResultStatus.REGISTRY_ERROR
-                    : OperationResult.ResultStatus.CONFLICT;
+        documentMetrics.recordBatch(DocumentAction.SUBMIT, startTime, results);
+        return results;
+    }
 
-            return OperationResult.builder()
-                    .id(id)
-                    .status(status)
-                    .message(e.getMessage())
-                    .build();
+    @Transactional
+    public List<OperationResult> approveBatch(List<Long> ids, String initiator, String comment) {
+        long startTime = System.nanoTime();
+        List<Long> uniqueIds = ids.stream().distinct().toList();
+        Map<Long, DocumentStatus> statuses = lockStatuses(uniqueIds);
+
+        List<Long> eligibleIds = uniqueIds.stream()
+                .filter(id -> statuses.get(id) == DocumentStatus.SUBMITTED)
+                .toList();
+
+        Set<Long> registeredIds = new HashSet<>();
+        if (!eligibleIds.isEmpty() && registryMode == ApprovalRegistryMode.SAGA) {
+            LocalDateTime now = LocalDateTime.now();
+            transitionBatch(eligibleIds, DocumentStatus.SUBMITTED, DocumentStatus.APPROVED,
+                    DocumentAction.APPROVE, initiator, comment, now);
+            approvalOutboxRepository.insertBatch(eligibleIds.toArray(Long[]::new), initiator, now);
+            registeredIds.addAll(eligibleIds);
+            documentCountService.invalidateTransition(DocumentStatus.SUBMITTED, DocumentStatus.APPROVED);
+        } else if (!eligibleIds.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            Set<Long> alreadyRegistered = new HashSet<>(
+                    approvalRegistryRepository.findRegisteredDocumentIds(eligibleIds));
+            List<Long> registrableIds = eligibleIds.stream()
+                    .filter(id -> !alreadyRegistered.contains(id))
+                    .toList();
+
+            if (!registrableIds.isEmpty()) {
+                registeredIds.addAll(register(registrableIds, initiator, now));
+            }
+
+            List<Long> approvedIds = eligibleIds.stream()
+                    .filter(registeredIds::contains)
+                    .toList();
+
+            if (!approvedIds.isEmpty()) {
+                transitionBatch(approvedIds, DocumentStatus.SUBMITTED, DocumentStatus.APPROVED,
+                        DocumentAction.APPROVE, initiator, comment, now);
+                documentCountService.invalidateTransition(DocumentStatus.SUBMITTED, DocumentStatus.APPROVED);
+            }
         }
+
+        log.info("Пакет утвержден. Уникальных ID: {}, Утверждено: {}, Ошибок реестра: {}",
+                uniqueIds.size(), registeredIds.size(), eligibleIds.size() - registeredIds.size());
+
+        List<OperationResult> results = uniqueIds.stream()
+                .map(id -> {
+                    DocumentStatus status = statuses.get(id);
+                    if (status == DocumentStatus.SUBMITTED && !registeredIds.contains(id)) {
+                        log.error("Ошибка при создании записи в реестре для документа {}", id);
+                        return OperationResult.builder()
+                                .id(id)
+                                .status(OperationResult.ResultStatus.REGISTRY_ERROR)
+                                .message("Не удалось создать запись в реестре утверждений")
+                                .build();
+                    }
+                    return toBatchResult(id, status, DocumentStatus.SUBMITTED, "Документ успешно утвержден");
+                })
+                .toList();
+
+        documentMetrics.recordBatch(DocumentAction.APPROVE, startTime, results);
+        return results;
     }
 
-    private String generateRegistryNumber() {
-        String datePart = LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String uniquePart = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        return "REG-" + datePart + "-" + uniquePart;
+    // Номера реестра резервируются после вставки и только на реально созданные строки,
+    // поэтому документ, уже попавший в реестр параллельно, не оставляет пропуска в нумерации
+    private List<Long> register(List<Long> ids, String initiator, LocalDateTime now) {
+        List<Long> insertedIds = approvalRegistryRepository.insertBatch(ids.toArray(Long[]::new), initiator, now);
+        if (!insertedIds.isEmpty()) {
+            approvalRegistryRepository.assignRegistryNumbers(insertedIds.toArray(Long[]::new),
+                    numberGenerator.registryNumbers(insertedIds.size()).toArray(String[]::new));
+        }
+        return insertedIds;
+    }
+
+    private void transitionBatch(List<Long> ids, DocumentStatus expectedStatus, DocumentStatus newStatus,
+                                 DocumentAction action, String initiator, String comment, LocalDateTime now) {
+        documentRepository.transitionStatusBatch(ids.toArray(Long[]::new), expectedStatus.name(), newStatus.name(),
+                now, action.name(), initiator, comment != null ? comment : "");
+        entityManager.clear();
+    }
+
+    private Map<Long, DocumentStatus> lockStatuses(List<Long> ids) {
+        Map<Long, DocumentStatus> statuses = new HashMap<>();
+        for (DocumentStatusView view : documentRepository.lockStatusesByIds(ids)) {
+            statuses.put(view.getId(), view.getStatus());
+        }
+        return statuses;
+    }
+
+    private OperationResult toBatchResult(Long id, DocumentStatus currentStatus, DocumentStatus expectedStatus,
+                                          String successMessage) {
+        if (currentStatus != null && currentStatus != expectedStatus) {
+            log.warn("Недопустимый переход статуса. Документ ID: {}, Текущий статус: {}, Ожидаемый: {}",
+                    id, currentStatus, expectedStatus);
+        }
+        return OperationResult.forTransition(id, currentStatus, expectedStatus, successMessage);
     }
 }
@@ -0,0 +1,167 @@
+package ru.arapov.itqgrouptask.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import ru.arapov.itqgrouptask.dto.CursorPage;
+import ru.arapov.itqgrouptask.dto.DocumentChange;
+import ru.arapov.itqgrouptask.exception.InvalidCursorException;
+import ru.arapov.itqgrouptask.model.DocumentAction;
+import ru.arapov.itqgrouptask.repository.HistoryRepository;
+import ru.arapov.itqgrouptask.utils.WakeSignal;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Лента переходов статусов читается из history по ключу (tx_id, id), где tx_id — номер транзакции,
+ * записавшей строку. Порядок id не совпадает с порядком коммитов, поэтому отдаются только строки
+ * транзакций с номером меньше xmin текущего снимка: все они уже завершены, а любая строка, которая
+ * станет видна позже, получит tx_id не меньше этой границы и курсор ее не перепрыгнет. Долгая
+ * пишущая транзакция задерживает ленту до своего завершения. Курсор имеет вид "tx_id:id",
+ * старый курсор из одного id читается как "0:id". Долгий опрос ждет на виртуальном потоке, поэтому
+ * ожидающие подписчики не занимают потоки обработки запросов.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentChangeService {
+
+    public static final int MAX_PAGE = 1000;
+
+    private static final Set<DocumentAction> TRANSITIONS = EnumSet.of(DocumentAction.SUBMIT,
+            DocumentAction.APPROVE, DocumentAction.REVERT);
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final HistoryRepository historyRepository;
+
+    private final JsonMapper jsonMapper;
+
+    private final WakeSignal wakeSignal = new WakeSignal();
+
+    private final ExecutorService pollExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${changes.poll-interval:5000}")
+    private long pollInterval;
+
+    @Value("${changes.max-wait:30000}")
+    private long maxWait;
+
+    @Value("${changes.stream-max-duration:600000}")
+    private long streamMaxDuration;
+
+    public void wake() {
+        wakeSignal.signal();
+    }
+
+    @PreDestroy
+    public void stop() {
+        pollExecutor.shutdownNow();
+    }
+
+    public CompletableFuture<CursorPage<DocumentChange>> changesAsync(String cursor, int limit, long waitMillis) {
+        ChangeCursor after = parseCursor(cursor);
+        if (waitMillis <= 0) {
+            return CompletableFuture.completedFuture(changes(after, limit, 0));
+        }
+        return CompletableFuture.supplyAsync(() -> changes(after, limit, waitMillis), pollExecutor);
+    }
+
+    public CursorPage<DocumentChange> changes(String cursor, int limit, long waitMillis) {
+        return changes(parseCursor(cursor), limit, waitMillis);
+    }
+
+    private CursorPage<DocumentChange> changes(ChangeCursor after, int limit, long waitMillis) {
+        long deadline = System.currentTimeMillis() + Math.clamp(waitMillis, 0, maxWait);
+
+        List<DocumentChange> changes;
+        try {
+            changes = awaitChanges(after, limit, deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            changes = List.of();
+        }
+        String nextCursor = changes.isEmpty() ? after.toString() : changes.getLast().cursor();
+
+        return new CursorPage<>(changes, changes.size(), nextCursor, null, null);
+    }
+
+    public long stream(ChangeCursor after, int batchSize, OutputStream outputStream) throws IOException {
+        long deadline = System.currentTimeMillis() + streamMaxDuration;
+        long rows = 0;
+
+        log.info("Поток изменений открыт. Курсор: {}", after);
+
+        BufferedOutputStream out = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                List<DocumentChange> changes = awaitChanges(after, batchSize, deadline);
+                for (DocumentChange change : changes) {
+                    out.write(jsonMapper.writeValueAsBytes(change));
+                    out.write('\n');
+                }
+                out.flush();
+
+                if (!changes.isEmpty()) {
+                    after = parseCursor(changes.getLast().cursor());
+                    rows += changes.size();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        log.info("Поток изменений закрыт по времени. Отдано: {}, Курсор: {}", rows, after);
+        return rows;
+    }
+
+    private List<DocumentChange> awaitChanges(ChangeCursor after, int limit, long deadline) throws InterruptedException {
+        while (true) {
+            long generation = wakeSignal.generation();
+            long visibleBefore = historyRepository.findVisibleTxHorizon();
+            List<DocumentChange> changes = historyRepository.findChangesAfter(after.txId(), after.id(),
+                    visibleBefore, TRANSITIONS, Limit.of(limit));
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (!changes.isEmpty() || remaining <= 0) {
+                return changes;
+            }
+
+            wakeSignal.await(generation, Math.min(pollInterval, remaining));
+        }
+    }
+
+    public static ChangeCursor parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new ChangeCursor(0, 0);
+        }
+        int separator = cursor.indexOf(':');
+        try {
+            return separator < 0
+                    ? new ChangeCursor(0, Long.parseLong(cursor))
+                    : new ChangeCursor(Long.parseLong(cursor.substring(0, separator)),
+                    Long.parseLong(cursor.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("Некорректный курсор: " + cursor);
+        }
+    }
+
+    public record ChangeCursor(long txId, long id) {
+
+        @Override
+        public String toString() {
+            return txId + ":" + id;
+        }
+    }
+}
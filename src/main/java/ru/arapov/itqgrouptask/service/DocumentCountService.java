@@ -0,0 +1,135 @@
+package ru.arapov.itqgrouptask.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.arapov.itqgrouptask.dto.DocumentSearchFilter;
+import ru.arapov.itqgrouptask.dto.SearchTotal;
+import ru.arapov.itqgrouptask.dto.TotalMode;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+import ru.arapov.itqgrouptask.repository.DocumentRepository;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Кэш точных количеств для поиска. Запись сбрасывается только изменениями, которые могут поменять ее количество:
+ * создание документов затрагивает фильтры без статуса и фильтры по DRAFT, переход статуса - лишь фильтры по
+ * исходному и целевому статусам (общее число документов и даты создания при переходе не меняются).
+ * Поэтому непрерывная работа воркеров не вытесняет из кэша фильтры без статуса и по другим статусам.
+ */
+@Service
+@Slf4j
+public class DocumentCountService {
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
+    private final DocumentRepository documentRepository;
+
+    private final long ttlNanos;
+
+    private static final int ANY_STATUS = DocumentStatus.values().length;
+
+    private final AtomicLongArray generations = new AtomicLongArray(ANY_STATUS + 1);
+
+    private final Map<DocumentSearchFilter, CachedCount> cache;
+
+    public DocumentCountService(DocumentRepository documentRepository,
+                                @Value("${search.count-cache.size:1000}") int cacheSize,
+                                @Value("${search.count-cache.ttl:30s}") Duration ttl) {
+        this.documentRepository = documentRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DocumentSearchFilter, CachedCount> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public SearchTotal count(DocumentSearchFilter filter, TotalMode mode) {
+        if (mode == TotalMode.APPROXIMATE) {
+            Long estimate = estimate(filter);
+            if (estimate != null) {
+                return new SearchTotal(estimate, SearchTotal.Kind.APPROXIMATE);
+            }
+        }
+
+        long currentGeneration = generations.get(slot(filter));
+        CachedCount cached = cache.get(filter);
+        if (cached != null && cached.generation() == currentGeneration && System.nanoTime() < cached.expiresAt()) {
+            return new SearchTotal(cached.value(), SearchTotal.Kind.CACHED);
+        }
+
+        long value = documentRepository.countDocuments(
+                filter.status(), filter.author(), filter.fromDate(), filter.toDate());
+        cache.put(filter, new CachedCount(value, currentGeneration, System.nanoTime() + ttlNanos));
+
+        return new SearchTotal(value, SearchTotal.Kind.EXACT);
+    }
+
+    public void invalidateCreated() {
+        invalidate(DocumentStatus.DRAFT, null);
+    }
+
+    public void invalidateTransition(DocumentStatus from, DocumentStatus to) {
+        invalidate(from, to);
+    }
+
+    private void invalidate(DocumentStatus first, DocumentStatus second) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(first, second);
+                }
+            });
+        } else {
+            evict(first, second);
+        }
+    }
+
+    private void evict(DocumentStatus first, DocumentStatus second) {
+        generations.incrementAndGet(slot(first));
+        generations.incrementAndGet(slot(second));
+        synchronized (cache) {
+            cache.keySet().removeIf(filter -> filter.status() == first || filter.status() == second);
+        }
+    }
+
+    private static int slot(DocumentSearchFilter filter) {
+        return slot(filter.status());
+    }
+
+    private static int slot(DocumentStatus status) {
+        return status != null ? status.ordinal() : ANY_STATUS;
+    }
+
+    private Long estimate(DocumentSearchFilter filter) {
+        try {
+            List<String> plan = documentRepository.explainSearch(
+                    filter.status() != null ? filter.status().name() : null,
+                    filter.author(), filter.fromDate(), filter.toDate());
+
+            if (!plan.isEmpty()) {
+                Matcher matcher = PLAN_ROWS.matcher(plan.getFirst());
+                if (matcher.find()) {
+                    return Long.parseLong(matcher.group(1));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Не удалось получить оценку количества документов: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private record CachedCount(long value, long generation, long expiresAt) {
+    }
+}
@@ -0,0 +1,85 @@
+package ru.arapov.itqgrouptask.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.arapov.itqgrouptask.dto.DocumentExportRow;
+import ru.arapov.itqgrouptask.dto.DocumentSearchFilter;
+import ru.arapov.itqgrouptask.dto.ExportFormat;
+import ru.arapov.itqgrouptask.repository.DocumentRepository;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String CSV_HEADER = "id,documentNumber,author,title,status,initiator,createdAt,updatedAt\n";
+
+    private final DocumentRepository documentRepository;
+
+    private final JsonMapper jsonMapper;
+
+    @Transactional(readOnly = true)
+    public long export(DocumentSearchFilter filter, ExportFormat format, OutputStream outputStream) throws IOException {
+        log.info("Экспорт документов. Формат: {}, Фильтр: {}", format, filter);
+
+        long startTime = System.currentTimeMillis();
+        long rows = 0;
+
+        BufferedOutputStream out = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        if (format == ExportFormat.CSV) {
+            out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (Stream<DocumentExportRow> stream = documentRepository.streamForExport(
+                filter.status(), filter.author(), filter.fromDate(), filter.toDate())) {
+            Iterator<DocumentExportRow> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                DocumentExportRow row = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    out.write(toCsvLine(row).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    out.write(jsonMapper.writeValueAsBytes(row));
+                    out.write('\n');
+                }
+                rows++;
+            }
+        }
+
+        out.flush();
+
+        log.info("Экспорт завершен. Строк: {}, Время: {} мс", rows, System.currentTimeMillis() - startTime);
+        return rows;
+    }
+
+    private static String toCsvLine(DocumentExportRow row) {
+        return row.id() + "," +
+                csv(row.documentNumber()) + "," +
+                csv(row.author()) + "," +
+                csv(row.title()) + "," +
+                row.status() + "," +
+                csv(row.initiator()) + "," +
+                (row.createdAt() != null ? row.createdAt() : "") + "," +
+                (row.updatedAt() != null ? row.updatedAt() : "") + "\n";
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
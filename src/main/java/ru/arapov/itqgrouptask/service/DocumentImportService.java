@@ -0,0 +1,288 @@
+package ru.arapov.itqgrouptask.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.arapov.itqgrouptask.dto.DocumentRequest;
+import ru.arapov.itqgrouptask.dto.ExportFormat;
+import ru.arapov.itqgrouptask.dto.ImportRejection;
+import ru.arapov.itqgrouptask.dto.ImportReport;
+import ru.arapov.itqgrouptask.utils.ImportRowReader;
+import ru.arapov.itqgrouptask.utils.ImportRowReader.ImportRow;
+import ru.arapov.itqgrouptask.utils.NumberGenerator;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Импорт идет пакетами по import.chunk-rows строк, каждый пакет в своей транзакции: строки проверяются
+ * по мере чтения и через COPY пишутся во временную таблицу document_import, затем перекладываются в documents
+ * вместе с историей одним INSERT ... SELECT. Невалидные строки попадают в отчет и импорт не прерывают. Если базу
+ * не устроил уже проверенный пакет, откатывается только он: его строки попадают в отчет одной записью,
+ * загрузка продолжается. Короткие транзакции не держат горизонт xmin, по которому работает лента изменений.
+ */
+@Service
+@Slf4j
+public class DocumentImportService {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final String CREATE_STAGING = "CREATE TEMP TABLE IF NOT EXISTS document_import (" +
+            "row_number BIGINT NOT NULL, document_number VARCHAR(50) NOT NULL, author VARCHAR(255) NOT NULL, " +
+            "title VARCHAR(500) NOT NULL, initiator VARCHAR(255) NOT NULL, created_at TIMESTAMP) " +
+            "ON COMMIT DROP";
+
+    private static final String COPY_STAGING = "COPY document_import " +
+            "(row_number, document_number, author, title, initiator, created_at) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String MOVE_STAGING = "WITH inserted AS (" +
+            "INSERT INTO documents (document_number, author, title, status, initiator, created_at, updated_at) " +
+            "SELECT document_number, author, title, 'DRAFT', initiator, " +
+            "COALESCE(created_at, LOCALTIMESTAMP), LOCALTIMESTAMP FROM document_import ORDER BY row_number " +
+            "RETURNING id, initiator) " +
+            "INSERT INTO history (document_id, initiator, timestamp, action, comment) " +
+            "SELECT id, initiator, LOCALTIMESTAMP, 'CREATE', 'Документ импортирован в статусе ''DRAFT''' " +
+            "FROM inserted";
+
+    private static final List<String> FIELD_ORDER = List.of("author", "title", "initiator");
+
+    private static final int MIN_YEAR = 1;
+
+    private static final int MAX_YEAR = 9999;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Validator validator;
+
+    private final JsonMapper jsonMapper;
+
+    private final NumberGenerator numberGenerator;
+
+    private final DocumentCountService documentCountService;
+
+    private final DocumentMetrics documentMetrics;
+
+    private final int chunkRows;
+
+    private final int maxReportedRejections;
+
+    public DocumentImportService(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 Validator validator,
+                                 JsonMapper jsonMapper,
+                                 NumberGenerator numberGenerator,
+                                 DocumentCountService documentCountService,
+                                 DocumentMetrics documentMetrics,
+                                 @Value("${import.chunk-rows:50000}") int chunkRows,
+                                 @Value("${import.max-reported-rejections:1000}") int maxReportedRejections) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.jsonMapper = jsonMapper;
+        this.numberGenerator = numberGenerator;
+        this.documentCountService = documentCountService;
+        this.documentMetrics = documentMetrics;
+        this.chunkRows = chunkRows;
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    public ImportReport importDocuments(ExportFormat format, InputStream input) {
+        log.info("Импорт документов. Формат: {}", format);
+
+        long startTime = System.nanoTime();
+        ImportProgress progress = new ImportProgress();
+
+        try (ImportRowReader reader = new ImportRowReader(format, input, jsonMapper)) {
+            boolean more = true;
+            while (more) {
+                long rowsBefore = progress.total;
+                try {
+                    more = Boolean.TRUE.equals(transactionTemplate.execute(status -> jdbcTemplate.execute(
+                            (ConnectionCallback<Boolean>) connection -> copyChunk(connection, reader, progress))));
+                } catch (DataAccessException e) {
+                    rejectChunk(progress, rowsBefore, e);
+                }
+                log.info("Импорт: обработано строк {}, загружено {}, отклонено {}",
+                        progress.total, progress.imported, progress.rejected);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения файла импорта", e);
+        }
+
+        if (progress.imported > 0) {
+            documentCountService.invalidateCreated();
+            documentMetrics.recordBulkCreate(startTime, (int) progress.imported);
+        }
+
+        long totalTime = (System.nanoTime() - startTime) / 1_000_000;
+        log.info("Импорт завершен. Строк: {}, Загружено: {}, Отклонено: {}, Время: {} мс",
+                progress.total, progress.imported, progress.rejected, totalTime);
+
+        return ImportReport.builder()
+                .format(format)
+                .totalRows(progress.total)
+                .importedRows(progress.imported)
+                .rejectedRows(progress.rejected)
+                .rejections(progress.rejections)
+                .rejectionsTruncated(progress.rejected > progress.rejections.size())
+                .totalTime(totalTime)
+                .build();
+    }
+
+    private boolean copyChunk(Connection connection, ImportRowReader reader, ImportProgress progress)
+            throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING);
+        }
+
+        PGCopyOutputStream copy = null;
+        try {
+            ImportRow row;
+            while ((row = readRow(reader)) != null) {
+                progress.total++;
+                String error = validate(row);
+                if (error != null) {
+                    progress.reject(row.rowNumber(), error, 1, maxReportedRejections);
+                    continue;
+                }
+
+                if (copy == null) {
+                    copy = new PGCopyOutputStream(pgConnection, COPY_STAGING, COPY_BUFFER_SIZE);
+                }
+                copy.write(toStagingLine(row).getBytes(StandardCharsets.UTF_8));
+                if (++progress.staged == chunkRows) {
+                    break;
+                }
+            }
+            if (copy != null) {
+                copy.close();
+                progress.imported += moveStaged(connection);
+            }
+            progress.staged = 0;
+            return row != null;
+        } catch (IOException e) {
+            throw new SQLException("Ошибка записи пакета через COPY: " + e.getMessage(), e);
+        } finally {
+            if (copy != null && copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    private static ImportRow readRow(ImportRowReader reader) {
+        try {
+            return reader.next();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения файла импорта", e);
+        }
+    }
+
+    private void rejectChunk(ImportProgress progress, long rowsBefore, DataAccessException error) {
+        String message = error.getMostSpecificCause().getMessage();
+        log.error("Импорт: пакет строк {}-{} не загружен. Ошибка: {}", rowsBefore + 1, progress.total, message);
+
+        progress.reject(rowsBefore + 1, "Пакет строк " + (rowsBefore + 1) + "-" + progress.total
+                + " отклонен базой: " + message, progress.staged, maxReportedRejections);
+        progress.staged = 0;
+    }
+
+    private int moveStaged(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            int moved = statement.executeUpdate(MOVE_STAGING);
+            statement.execute("TRUNCATE document_import");
+            return moved;
+        }
+    }
+
+    private String validate(ImportRow row) {
+        if (row.error() != null) {
+            return row.error();
+        }
+        Set<ConstraintViolation<DocumentRequest>> violations =
+                validator.validate(new DocumentRequest(row.author(), row.title(), row.initiator()));
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .sorted(Comparator.<ConstraintViolation<DocumentRequest>>comparingInt(
+                                    violation -> FIELD_ORDER.indexOf(violation.getPropertyPath().toString()))
+                            .thenComparing(ConstraintViolation::getMessage))
+                    .map(ConstraintViolation::getMessage)
+                    .collect(Collectors.joining("; "));
+        }
+        if (containsNul(row.author()) || containsNul(row.title()) || containsNul(row.initiator())) {
+            return "Текстовые поля не могут содержать символ NUL";
+        }
+        if (row.createdAt() != null && !row.createdAt().isBlank()) {
+            try {
+                int year = LocalDateTime.parse(row.createdAt()).getYear();
+                if (year < MIN_YEAR || year > MAX_YEAR) {
+                    return "Дата создания вне допустимого диапазона: " + row.createdAt();
+                }
+            } catch (DateTimeParseException e) {
+                return "Некорректная дата создания: " + row.createdAt();
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsNul(String value) {
+        return value.indexOf('\0') >= 0;
+    }
+
+    private String toStagingLine(ImportRow row) {
+        String createdAt = row.createdAt() != null && !row.createdAt().isBlank()
+                ? LocalDateTime.parse(row.createdAt()).toString() : "";
+        return row.rowNumber() + "," +
+                numberGenerator.documentNumber() + "," +
+                quote(row.author()) + "," +
+                quote(row.title()) + "," +
+                quote(row.initiator()) + "," +
+                createdAt + "\n";
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static final class ImportProgress {
+
+        private final List<ImportRejection> rejections = new ArrayList<>();
+
+        private long total;
+
+        private long imported;
+
+        private long rejected;
+
+        private int staged;
+
+        private void reject(long rowNumber, String reason, long rows, int maxReported) {
+            rejected += rows;
+            if (rejections.size() < maxReported) {
+                rejections.add(new ImportRejection(rowNumber, reason));
+            }
+        }
+    }
+}
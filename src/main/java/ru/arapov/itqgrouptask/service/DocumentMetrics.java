@@ -0,0 +1,110 @@
+package ru.arapov.itqgrouptask.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import ru.arapov.itqgrouptask.dto.OperationResult;
+import ru.arapov.itqgrouptask.model.DocumentAction;
+import ru.arapov.itqgrouptask.utils.WorkerQueue;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class DocumentMetrics {
+
+    private static final OperationResult.ResultStatus[] RESULT_STATUSES = OperationResult.ResultStatus.values();
+
+    private final Map<DocumentAction, Timer> singleTimers = new EnumMap<>(DocumentAction.class);
+
+    private final Map<DocumentAction, Timer> batchTimers = new EnumMap<>(DocumentAction.class);
+
+    private final Map<DocumentAction, DistributionSummary> batchSizes = new EnumMap<>(DocumentAction.class);
+
+    private final Map<DocumentAction, Counter[]> resultCounters = new EnumMap<>(DocumentAction.class);
+
+    private final Map<WorkerQueue, Timer> workerCycleTimers = new EnumMap<>(WorkerQueue.class);
+
+    public DocumentMetrics(MeterRegistry registry) {
+        for (DocumentAction action : DocumentAction.values()) {
+            String operation = action.name().toLowerCase();
+
+            singleTimers.put(action, Timer.builder("documents.operation")
+                    .description("Время операции над документами")
+                    .tag("operation", operation)
+                    .tag("scope", "single")
+                    .publishPercentileHistogram()
+                    .register(registry));
+            batchTimers.put(action, Timer.builder("documents.operation")
+                    .description("Время операции над документами")
+                    .tag("operation", operation)
+                    .tag("scope", "batch")
+                    .publishPercentileHistogram()
+                    .register(registry));
+            batchSizes.put(action, DistributionSummary.builder("documents.batch.size")
+                    .description("Количество документов в пакете")
+                    .tag("operation", operation)
+                    .baseUnit("documents")
+                    .publishPercentileHistogram()
+                    .register(registry));
+
+            Counter[] counters = new Counter[RESULT_STATUSES.length];
+            for (OperationResult.ResultStatus status : RESULT_STATUSES) {
+                counters[status.ordinal()] = Counter.builder("documents.results")
+                        .description("Результаты операций по документам")
+                        .tag("operation", operation)
+                        .tag("status", status.name())
+                        .register(registry);
+            }
+            resultCounters.put(action, counters);
+        }
+
+        for (WorkerQueue queue : WorkerQueue.values()) {
+            workerCycleTimers.put(queue, Timer.builder("worker.cycle")
+                    .description("Время одного прохода воркера")
+                    .tag("queue", queue.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    public void recordSingle(DocumentAction action, long startNanos, OperationResult.ResultStatus status) {
+        singleTimers.get(action).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        resultCounters.get(action)[status.ordinal()].increment();
+    }
+
+    public void recordBatch(DocumentAction action, long startNanos, List<OperationResult> results) {
+        batchTimers.get(action).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        batchSizes.get(action).record(results.size());
+
+        int[] counts = new int[RESULT_STATUSES.length];
+        for (OperationResult result : results) {
+            counts[result.status().ordinal()]++;
+        }
+
+        Counter[] counters = resultCounters.get(action);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                counters[i].increment(counts[i]);
+            }
+        }
+    }
+
+    public void recordCreate(long startNanos) {
+        singleTimers.get(DocumentAction.CREATE).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        resultCounters.get(DocumentAction.CREATE)[OperationResult.ResultStatus.SUCCESS.ordinal()].increment();
+    }
+
+    public void recordBulkCreate(long startNanos, int count) {
+        batchTimers.get(DocumentAction.CREATE).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        batchSizes.get(DocumentAction.CREATE).record(count);
+        resultCounters.get(DocumentAction.CREATE)[OperationResult.ResultStatus.SUCCESS.ordinal()].increment(count);
+    }
+
+    public void recordWorkerCycle(WorkerQueue queue, long startNanos) {
+        workerCycleTimers.get(queue).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,64 @@
+package ru.arapov.itqgrouptask.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.arapov.itqgrouptask.dto.OperationResult;
+import ru.arapov.itqgrouptask.dto.QueueBatchOutcome;
+import ru.arapov.itqgrouptask.dto.WorkerQueueStats;
+import ru.arapov.itqgrouptask.repository.DocumentRepository;
+import ru.arapov.itqgrouptask.utils.WorkerQueue;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentQueueService {
+
+    private final DocumentRepository documentRepository;
+
+    private final DocumentAtomicService documentAtomicService;
+
+    @Transactional
+    public QueueBatchOutcome processBatch(WorkerQueue queue, int limit) {
+        List<Long> ids = documentRepository.findAndLockQueue(queue.getSourceStatus().name(), limit);
+
+        if (ids.isEmpty()) {
+            return new QueueBatchOutcome(0, 0);
+        }
+
+        List<OperationResult> results = switch (queue) {
+            case SUBMIT -> documentAtomicService.submitBatch(ids, "SYSTEM",
+                    "Автоматическая отправка на согласование");
+            case APPROVE -> documentAtomicService.approveBatch(ids, "SYSTEM",
+                    "Автоматическое утверждение");
+        };
+
+        int succeeded = (int) results.stream()
+                .filter(r -> r.status() == OperationResult.ResultStatus.SUCCESS)
+                .count();
+
+        return new QueueBatchOutcome(ids.size(), succeeded);
+    }
+
+    @Transactional(readOnly = true)
+    public WorkerQueueStats queueStats(WorkerQueue queue, int batchSize, int consumers) {
+        long depth = documentRepository.countByStatus(queue.getSourceStatus());
+        LocalDateTime oldest = documentRepository.findOldestCreatedAt(queue.getSourceStatus());
+        long oldestAgeSeconds = oldest != null
+                ? Math.max(0, Duration.between(oldest, LocalDateTime.now()).toSeconds())
+                : 0;
+
+        return WorkerQueueStats.builder()
+                .queue(queue.name())
+                .status(queue.getSourceStatus())
+                .depth(depth)
+                .oldestAgeSeconds(oldestAgeSeconds)
+                .batchSize(batchSize)
+                .consumers(consumers)
+                .build();
+    }
+}
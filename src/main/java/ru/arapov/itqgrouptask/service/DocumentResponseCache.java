@@ -0,0 +1,125 @@
+package ru.arapov.itqgrouptask.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import ru.arapov.itqgrouptask.dto.CachedDocument;
+import ru.arapov.itqgrouptask.dto.DocumentResponse;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+import ru.arapov.itqgrouptask.utils.ApprovalRegistryMode;
+import tools.jackson.databind.json.JsonMapper;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+
+/**
+ * Кэш готового JSON для документов в конечном статусе: REGISTRY_REJECTED и APPROVED в режиме sync.
+ * В режиме saga APPROVED еще может откатиться компенсацией на любом узле, поэтому не кэшируется.
+ * Конечный документ больше не меняется, значит межузловая инвалидация не нужна, а TTL лишь ограничивает
+ * время жизни записи (например, после переноса истории в архив). Кэш разбит на сегменты по id, каждый со своим
+ * LRU и своей долей лимитов, чтобы чтения разных документов не ждали одну блокировку.
+ */
+@Service
+@Slf4j
+public class DocumentResponseCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final JsonMapper jsonMapper;
+
+    private final ApprovalRegistryMode registryMode;
+
+    private final long ttlNanos;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public DocumentResponseCache(JsonMapper jsonMapper,
+                                 @Value("${approval.registry-mode:sync}") ApprovalRegistryMode registryMode,
+                                 @Value("${document-cache.max-entries:10000}") int maxEntries,
+                                 @Value("${document-cache.max-bytes:67108864}") long maxBytes,
+                                 @Value("${document-cache.ttl:10m}") Duration ttl) {
+        this.jsonMapper = jsonMapper;
+        this.registryMode = registryMode;
+        this.ttlNanos = ttl.toNanos();
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(Math.max(1, maxEntries / SEGMENTS), Math.max(1, maxBytes / SEGMENTS));
+        }
+    }
+
+    public CachedDocument get(Long id) {
+        return segment(id).get(id, System.nanoTime());
+    }
+
+    public CachedDocument render(DocumentResponse response) {
+        byte[] json = jsonMapper.writeValueAsBytes(response);
+        return new CachedDocument(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"", response.status());
+    }
+
+    public CachedDocument put(DocumentResponse response) {
+        CachedDocument cached = render(response);
+        if (isTerminal(response.status())) {
+            segment(response.id()).put(response.id(), new Entry(cached, System.nanoTime() + ttlNanos));
+        }
+        return cached;
+    }
+
+    private boolean isTerminal(DocumentStatus status) {
+        return status == DocumentStatus.REGISTRY_REJECTED
+                || status == DocumentStatus.APPROVED && registryMode == ApprovalRegistryMode.SYNC;
+    }
+
+    private Segment segment(Long id) {
+        int hash = Long.hashCode(id);
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private record Entry(CachedDocument document, long expiresAt) {
+    }
+
+    private static final class Segment {
+
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final int maxEntries;
+
+        private final long maxBytes;
+
+        private long totalBytes;
+
+        private Segment(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized CachedDocument get(Long id, long now) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return null;
+            }
+            if (now - entry.expiresAt() >= 0) {
+                remove(id);
+                return null;
+            }
+            return entry.document();
+        }
+
+        synchronized void put(Long id, Entry entry) {
+            remove(id);
+            entries.put(id, entry);
+            totalBytes += entry.document().json().length;
+
+            var iterator = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || totalBytes > maxBytes) && iterator.hasNext()) {
+                totalBytes -= iterator.next().getValue().document().json().length;
+                iterator.remove();
+            }
+        }
+
+        private void remove(Long id) {
+            Entry removed = entries.remove(id);
+            if (removed != null) {
+                totalBytes -= removed.document().json().length;
+            }
+        }
+    }
+}
@@ -1,64 +1,154 @@
 package ru.arapov.itqgrouptask.service;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.arapov.itqgrouptask.dto.BulkCreateRequest;
 import ru.arapov.itqgrouptask.dto.BulkOperationRequest;
+import ru.arapov.itqgrouptask.dto.CachedDocument;
+import ru.arapov.itqgrouptask.dto.CursorPage;
 import ru.arapov.itqgrouptask.dto.DocumentRequest;
 import ru.arapov.itqgrouptask.dto.DocumentResponse;
+import ru.arapov.itqgrouptask.dto.DocumentSearchFilter;
+import ru.arapov.itqgrouptask.dto.HistoryResponse;
+import ru.arapov.itqgrouptask.dto.LargeBulkOperationRequest;
 import ru.arapov.itqgrouptask.dto.OperationResult;
+import ru.arapov.itqgrouptask.dto.SearchPage;
+import ru.arapov.itqgrouptask.dto.SearchTotal;
+import ru.arapov.itqgrouptask.dto.TitleSearchMode;
+import ru.arapov.itqgrouptask.dto.TotalMode;
+import ru.arapov.itqgrouptask.exception.InvalidCursorException;
 import ru.arapov.itqgrouptask.exception.ResourceNotFoundException;
 import ru.arapov.itqgrouptask.model.*;
 import ru.arapov.itqgrouptask.repository.DocumentRepository;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import ru.arapov.itqgrouptask.repository.TitleSearchHit;
+import ru.arapov.itqgrouptask.utils.NumberGenerator;
+import ru.arapov.itqgrouptask.utils.SearchCursor;
+import ru.arapov.itqgrouptask.utils.TitleSearchCursor;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class DocumentService {
 
+    public static final int MAX_HISTORY_PAGE = 1000;
+
+    private final EntityManager entityManager;
+
     private final DocumentRepository documentRepository;
 
     private final HistoryService historyService;
 
+    private final HistoryArchiveService historyArchiveService;
+
     private final DocumentAtomicService documentAtomicService;
 
+    private final BulkChunkExecutor bulkChunkExecutor;
+
+    private final DocumentCountService documentCountService;
+
+    private final DocumentResponseCache documentResponseCache;
+
+    private final NumberGenerator numberGenerator;
+
+    private final DocumentMetrics documentMetrics;
+
+    @Value("${bulk.insert-batch-size:500}")
+    private int insertBatchSize;
+
+    @Value("${document.history-limit:100}")
+    private int historyLimit;
+
+    @Transactional
     public DocumentResponse createDocument(DocumentRequest request) {
         log.info("Начало создания документа. Автор: {}, Название: {}",
                 request.author(), request.title());
 
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
-        Document document = new Document();
-        document.setAuthor(request.author());
-        document.setTitle(request.title());
-        document.setStatus(DocumentStatus.DRAFT);
-        document.setInitiator(request.initiator());
-
-        String documentNumber = generateDocumentNumber();
-        document.setDocumentNumber(documentNumber);
-        log.info("Сгенерирован номер документа: {}", documentNumber);
+        Document document = newDraft(request);
+        log.info("Сгенерирован номер документа: {}", document.getDocumentNumber());
 
-        Document savedDocument = documentRepository.save(document);
+        Document savedDocument = documentRepository.saveAndFlush(document);
+        documentCountService.invalidateCreated();
+        documentMetrics.recordCreate(startTime);
 
-        historyService.saveHistory(savedDocument, DocumentAction.CREATE, request.initiator(),
-                "Документ создан в статусе 'DRAFT'");
-
-        long executionTime = System.currentTimeMillis() - startTime;
+        long executionTime = (System.nanoTime() - startTime) / 1_000_000;
         log.info("Документ успешно создан. ID: {}, Номер: {}, Время: {} мс",
                 savedDocument.getId(), savedDocument.getDocumentNumber(), executionTime);
 
         return DocumentResponse.from(savedDocument);
     }
 
+    @Transactional
+    public List<DocumentResponse> createDocuments(BulkCreateRequest request) {
+        log.info("Пакетное создание документов. Количество: {}", request.documents().size());
+
+        long startTime = System.nanoTime();
+        List<DocumentResponse> responses = new ArrayList<>(request.documents().size());
+        List<Document> chunk = new ArrayList<>(insertBatchSize);
+
+        for (DocumentRequest documentRequest : request.documents()) {
+            chunk.add(newDraft(documentRequest));
+            if (chunk.size() == insertBatchSize) {
+                responses.addAll(flushChunk(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            responses.addAll(flushChunk(chunk));
+        }
+
+        documentCountService.invalidateCreated();
+        documentMetrics.recordBulkCreate(startTime, responses.size());
+
+        log.info("Пакетное создание завершено. Создано: {}, Время: {} мс",
+                responses.size(), (System.nanoTime() - startTime) / 1_000_000);
+
+        return responses;
+    }
+
+    private List<DocumentResponse> flushChunk(List<Document> documents) {
+        documentRepository.saveAll(documents);
+        entityManager.flush();
+
+        List<DocumentResponse> responses = documents.stream()
+                .map(DocumentResponse::from)
+                .toList();
+
+        entityManager.clear();
+        return responses;
+    }
+
+    private Document newDraft(DocumentRequest request) {
+        Document document = new Document();
+        document.setAuthor(request.author());
+        document.setTitle(request.title());
+        document.setStatus(DocumentStatus.DRAFT);
+        document.setInitiator(request.initiator());
+        document.setDocumentNumber(numberGenerator.documentNumber());
+        document.getHistory().add(historyService.buildHistory(document, DocumentAction.CREATE,
+                request.initiator(), "Документ создан в статусе 'DRAFT'"));
+        return document;
+    }
+
     public DocumentResponse getDocumentWithHistory(Long id) {
-        log.info("Получение документа с историей. ID: {}", id);
+        return getDocumentWithHistory(id, historyLimit);
+    }
+
+    public DocumentResponse getDocumentWithHistory(Long id, int historyLimit) {
+        log.info("Получение документа с историей. ID: {}, Записей истории: {}", id, historyLimit);
 
         Document document = documentRepository.findById(id)
                 .orElseThrow(() -> {
@@ -66,7 +156,40 @@ public class DocumentService {
                     return new ResourceNotFoundException("Документ не найден с id: " + id);
                 });
 
-        return DocumentResponse.from(document);
+        return DocumentResponse.withHistory(document, historyService.latestHistory(id, historyLimit));
+    }
+
+    public CachedDocument getDocumentView(Long id) {
+        CachedDocument cached = documentResponseCache.get(id);
+        if (cached != null) {
+            log.debug("Документ {} отдан из кэша", id);
+            return cached;
+        }
+
+        return documentResponseCache.put(getDocumentWithHistory(id));
+    }
+
+    public CachedDocument getDocumentView(Long id, Integer historyLimit) {
+        if (historyLimit == null || historyLimit == this.historyLimit) {
+            return getDocumentView(id);
+        }
+        return documentResponseCache.render(getDocumentWithHistory(id, Math.clamp(historyLimit, 0, MAX_HISTORY_PAGE)));
+    }
+
+    public CursorPage<HistoryResponse> getDocumentHistory(Long id, String cursor, int size) {
+        log.info("Получение истории документа. ID: {}, Курсор: {}, Размер: {}", id, cursor, size);
+
+        long afterId = parseHistoryCursor(cursor);
+        List<HistoryResponse> entries = historyService.historyPage(id, afterId, size + 1);
+        if (entries.isEmpty() && !documentRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Документ не найден с id: " + id);
+        }
+
+        boolean hasNext = entries.size() > size;
+        List<HistoryResponse> page = hasNext ? entries.subList(0, size) : entries;
+        String nextCursor = hasNext ? String.valueOf(page.getLast().id()) : null;
+
+        return new CursorPage<>(page, page.size(), nextCursor, null, null);
     }
 
     public List<DocumentResponse> getDocumentsByIds(List<Long> ids) {
@@ -86,26 +209,23 @@ public class DocumentService {
                 request.ids().size(), request.initiator());
 
         long batchStartTime = System.currentTimeMillis();
-        List<OperationResult> results = new ArrayList<>();
-
-        for (Long id : request.ids()) {
-            long docStartTime = System.currentTimeMillis();
-
-            try {
-                OperationResult result = documentAtomicService.submitAtomicDocument(id, request.initiator(), request.comment());
-                results.add(result);
-
-                log.debug("Документ {} обработан за {} мс. Результат: {}",
-                        id, System.currentTimeMillis() - docStartTime, result.status());
-
-            } catch (Exception e) {
-                log.error("Ошибка при обработке документа {}: {}", id, e.getMessage());
-                results.add(OperationResult.builder()
-                        .id(id)
-                        .status(OperationResult.ResultStatus.CONFLICT)
-                        .message("Внутренняя ошибка сервера")
-                        .build());
-            }
+        List<OperationResult> results;
+
+        try {
+            results = request.ids().size() == 1
+                    ? List.of(documentAtomicService.submitAtomicDocument(request.ids().getFirst(),
+                            request.initiator(), request.comment()))
+                    : documentAtomicService.submitBatch(request.ids(), request.initiator(), request.comment());
+        } catch (Exception e) {
+            log.error("Ошибка при пакетной отправке документов: {}", e.getMessage());
+            results = request.ids().stream()
+                    .distinct()
+                    .map(id -> OperationResult.builder()
+                            .id(id)
+                            .status(OperationResult.ResultStatus.CONFLICT)
+                            .message("Внутренняя ошибка сервера")
+                            .build())
+                    .toList();
         }
 
         long batchTime = System.currentTimeMillis() - batchStartTime;
@@ -122,28 +242,23 @@ public class DocumentService {
                 request.ids().size(), request.initiator());
 
         long batchStartTime = System.currentTimeMillis();
-        List<OperationResult> results = new ArrayList<>();
-
-        for (Long id : request.ids()) {
-            long docStartTime = System.currentTimeMillis();
-
-            try {
-                OperationResult result = documentAtomicService.approveAtomicDocument(id, request.initiator(), request.comment());
-                results.add(result);
-
-                log.debug("Документ {} обработан за {} мс. Результат: {}",
-                        id, System.currentTimeMillis() - docStartTime, result.status());
-
-            } catch (Exception e) {
-                if (log.isErrorEnabled()) {
-                    log.error("Ошибка при обработке документа {}: {}", id, e.getMessage());
-                }
-                results.add(OperationResult.builder()
-                        .id(id)
-                        .status(OperationResult.ResultStatus.CONFLICT)
-                        .message("Внутренняя ошибка сервера")
-                        .build());
-            }
+        List<OperationResult> results;
+
+        try {
+            results = request.ids().size() == 1
+                    ? List.of(documentAtomicService.approveAtomicDocument(request.ids().getFirst(),
+                            request.initiator(), request.comment()))
+                    : documentAtomicService.approveBatch(request.ids(), request.initiator(), request.comment());
+        } catch (Exception e) {
+            log.error("Ошибка при пакетном утверждении документов: {}", e.getMessage());
+            results = request.ids().stream()
+                    .distinct()
+                    .map(id -> OperationResult.builder()
+                            .id(id)
+                            .status(OperationResult.ResultStatus.CONFLICT)
+                            .message("Внутренняя ошибка сервера")
+                            .build())
+                    .toList();
         }
 
         long batchTime = System.currentTimeMillis() - batchStartTime;
@@ -155,26 +270,151 @@ public class DocumentService {
         return results;
     }
 
-    public Page<DocumentResponse> searchDocuments(DocumentStatus status, String author,
-                                                  LocalDateTime fromDate, LocalDateTime toDate,
-                                                  Pageable pageable) {
+    public List<OperationResult> submitDocumentsInChunks(LargeBulkOperationRequest request) {
+        log.info("Параллельная отправка на согласование. Количество документов: {}, Инициатор: {}",
+                request.ids().size(), request.initiator());
+
+        long batchStartTime = System.currentTimeMillis();
+
+        List<OperationResult> results = bulkChunkExecutor.execute(request.ids(),
+                chunk -> documentAtomicService.submitBatch(chunk, request.initiator(), request.comment()));
+
+        log.info("Параллельная отправка завершена. Всего: {}, Успешно: {}, Время: {} мс",
+                results.size(),
+                results.stream().filter(r -> r.status() == OperationResult.ResultStatus.SUCCESS).count(),
+                System.currentTimeMillis() - batchStartTime);
+
+        return results;
+    }
+
+    public List<OperationResult> approveDocumentsInChunks(LargeBulkOperationRequest request) {
+        log.info("Параллельное утверждение документов. Количество: {}, Инициатор: {}",
+                request.ids().size(), request.initiator());
+
+        long batchStartTime = System.currentTimeMillis();
+
+        List<OperationResult> results = bulkChunkExecutor.execute(request.ids(),
+                chunk -> documentAtomicService.approveBatch(chunk, request.initiator(), request.comment()));
+
+        log.info("Параллельное утверждение завершено. Всего: {}, Успешно: {}, Время: {} мс",
+                results.size(),
+                results.stream().filter(r -> r.status() == OperationResult.ResultStatus.SUCCESS).count(),
+                System.currentTimeMillis() - batchStartTime);
+
+        return results;
+    }
+
+    public SearchPage<DocumentResponse> searchDocuments(DocumentSearchFilter filter, Pageable pageable,
+                                                        TotalMode totalMode) {
         log.info("Поиск документов. Статус: {}, Автор: {}, Дата с: {}, Дата по: {}",
-                status, author, fromDate, toDate);
+                filter.status(), filter.author(), filter.fromDate(), filter.toDate());
 
         long startTime = System.currentTimeMillis();
 
-        Page<Document> documents = documentRepository.searchDocuments(
-                status, author, fromDate, toDate, pageable);
+        List<Long> ids = documentRepository.searchDocumentIds(
+                filter.status(), filter.author(), filter.fromDate(), filter.toDate(), pageable);
 
-        log.info("Поиск завершен. Найдено документов: {}, Время: {} мс",
-                documents.getTotalElements(), System.currentTimeMillis() - startTime);
+        List<DocumentResponse> content = withHistory(ids);
+        SearchTotal total = documentCountService.count(filter, totalMode);
 
-        return documents.map(DocumentResponse::from);
+        log.info("Поиск завершен. Найдено документов: {} ({}), Время: {} мс",
+                total.value(), total.kind(), System.currentTimeMillis() - startTime);
+
+        return new SearchPage<>(new PageImpl<>(content, pageable, total.value()), total.kind());
     }
 
-    private String generateDocumentNumber() {
-        String datePart = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String uniquePart = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        return "DOC-" + datePart + "-" + uniquePart;
+    public CursorPage<DocumentResponse> scrollDocuments(DocumentSearchFilter filter, String cursor,
+                                                        int size, boolean withTotal, TotalMode totalMode) {
+        log.info("Поиск документов по курсору. Фильтр: {}, Курсор: {}, Размер: {}", filter, cursor, size);
+
+        long startTime = System.currentTimeMillis();
+
+        List<Document> documents;
+        if (cursor == null || cursor.isBlank()) {
+            documents = documentRepository.searchDocumentsFirst(
+                    filter.status(), filter.author(), filter.fromDate(), filter.toDate(), Limit.of(size + 1));
+        } else {
+            SearchCursor after = SearchCursor.decode(cursor);
+            documents = documentRepository.searchDocumentsAfter(
+                    filter.status(), filter.author(), filter.fromDate(), filter.toDate(),
+                    after.createdAt(), after.id(), Limit.of(size + 1));
+        }
+
+        boolean hasNext = documents.size() > size;
+        List<Document> page = hasNext ? documents.subList(0, size) : documents;
+
+        String nextCursor = null;
+        if (hasNext) {
+            Document last = page.getLast();
+            nextCursor = new SearchCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        SearchTotal total = withTotal ? documentCountService.count(filter, totalMode) : null;
+
+        List<DocumentResponse> content = withHistory(page.stream().map(Document::getId).toList());
+
+        log.info("Поиск по курсору завершен. Найдено на странице: {}, Время: {} мс",
+                content.size(), System.currentTimeMillis() - startTime);
+
+        return new CursorPage<>(content, content.size(), nextCursor,
+                total != null ? total.value() : null,
+                total != null ? total.kind() : null);
+    }
+
+    public CursorPage<DocumentResponse> searchByTitle(String query, TitleSearchMode mode, String cursor, int size) {
+        log.info("Поиск по заголовку. Запрос: {}, Режим: {}, Курсор: {}, Размер: {}", query, mode, cursor, size);
+
+        long startTime = System.currentTimeMillis();
+        String text = query.strip();
+
+        List<TitleSearchHit> hits;
+        if (cursor == null || cursor.isBlank()) {
+            hits = mode == TitleSearchMode.FUZZY
+                    ? documentRepository.searchTitleFuzzyFirst(text, size + 1)
+                    : documentRepository.searchTitleFirst(text, size + 1);
+        } else {
+            TitleSearchCursor after = TitleSearchCursor.decode(cursor);
+            hits = mode == TitleSearchMode.FUZZY
+                    ? documentRepository.searchTitleFuzzyAfter(text, after.rank(), after.id(), size + 1)
+                    : documentRepository.searchTitleAfter(text, after.rank(), after.id(), size + 1);
+        }
+
+        boolean hasNext = hits.size() > size;
+        List<TitleSearchHit> page = hasNext ? hits.subList(0, size) : hits;
+        String nextCursor = hasNext
+                ? new TitleSearchCursor(page.getLast().getRank(), page.getLast().getId()).encode()
+                : null;
+
+        List<DocumentResponse> content = withHistory(page.stream().map(TitleSearchHit::getId).toList());
+
+        log.info("Поиск по заголовку завершен. Найдено на странице: {}, Время: {} мс",
+                content.size(), System.currentTimeMillis() - startTime);
+
+        return new CursorPage<>(content, content.size(), nextCursor, null, null);
+    }
+
+    private long parseHistoryCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("Некорректный курсор: " + cursor);
+        }
+    }
+
+    private List<DocumentResponse> withHistory(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Document> documentsById = documentRepository.findAllWithHistoryByIdIn(ids).stream()
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+        Map<Long, List<HistoryResponse>> archived = historyArchiveService.archivedHistory(ids);
+
+        return ids.stream()
+                .map(id -> DocumentResponse.from(documentsById.get(id), archived.getOrDefault(id, List.of())))
+                .toList();
     }
 }
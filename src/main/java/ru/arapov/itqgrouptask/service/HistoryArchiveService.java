@@ -0,0 +1,128 @@
+package ru.arapov.itqgrouptask.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.arapov.itqgrouptask.dto.HistoryResponse;
+import ru.arapov.itqgrouptask.model.ArchivedHistoryEntry;
+import ru.arapov.itqgrouptask.repository.HistoryArchiveRepository;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * История разбита на месячные секции по timestamp, секции по умолчанию нет: строка вне созданных секций
+ * отклоняется базой, поэтому обслуживание заранее создает секции на несколько месяцев вперед.
+ * Секция старше срока хранения сначала копируется в history_archive, потом отсоединяется через
+ * DETACH CONCURRENTLY (без ACCESS EXCLUSIVE на history, поэтому вне транзакции) и удаляется.
+ * Пока идет перенос, строка может быть видна и в секции, и в архиве, чтение склеивает их по id.
+ * Прерванный перенос доделывается следующим запуском: копирование идемпотентно, зависшее
+ * отсоединение завершается через FINALIZE, уже отсоединенная секция просто удаляется.
+ */
+@Service
+@Slf4j
+public class HistoryArchiveService {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("history_p(\\d{6})");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final HistoryArchiveRepository historyArchiveRepository;
+
+    private final int monthsAhead;
+
+    private final int retentionMonths;
+
+    private final Clock clock = Clock.systemDefaultZone();
+
+    public HistoryArchiveService(JdbcTemplate jdbcTemplate,
+                                 HistoryArchiveRepository historyArchiveRepository,
+                                 @Value("${history.partition-months-ahead:3}") int monthsAhead,
+                                 @Value("${history.retention-months:12}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.historyArchiveRepository = historyArchiveRepository;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @Scheduled(initialDelayString = "${history.maintenance-delay:0}",
+            fixedDelayString = "${history.maintenance-interval:3600000}")
+    public void maintain() {
+        YearMonth current = YearMonth.now(clock);
+        try {
+            ensurePartitions(current, current.plusMonths(monthsAhead));
+            archiveBefore(current.minusMonths(retentionMonths));
+        } catch (DataAccessException e) {
+            log.error("Ошибка обслуживания секций истории: {}", e.getMessage());
+        }
+    }
+
+    public void ensurePartitions(YearMonth from, YearMonth to) {
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) +
+                    " PARTITION OF history FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" +
+                    month.plusMonths(1).atDay(1) + "')");
+        }
+    }
+
+    public int archiveBefore(YearMonth horizon) {
+        List<Partition> partitions = jdbcTemplate.query(
+                "SELECT c.relname, i.inhrelid IS NOT NULL AS attached, COALESCE(i.inhdetachpending, false) AS pending " +
+                        "FROM pg_class c LEFT JOIN pg_inherits i " +
+                        "ON i.inhrelid = c.oid AND i.inhparent = 'history'::regclass " +
+                        "WHERE c.relkind = 'r' AND c.relnamespace = current_schema()::regnamespace " +
+                        "AND c.relname ~ '^history_p[0-9]{6}$' ORDER BY c.relname",
+                (rs, rowNum) -> new Partition(rs.getString("relname"), rs.getBoolean("attached"),
+                        rs.getBoolean("pending")));
+
+        int archived = 0;
+        for (Partition partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition.name());
+            if (matcher.matches() && YearMonth.parse(matcher.group(1), PARTITION_SUFFIX).isBefore(horizon)) {
+                archived += archivePartition(partition);
+            }
+        }
+        return archived;
+    }
+
+    public Map<Long, List<HistoryResponse>> archivedHistory(Collection<Long> documentIds) {
+        return historyArchiveRepository.findByDocumentIdInOrderByIdAsc(documentIds).stream()
+                .collect(Collectors.groupingBy(ArchivedHistoryEntry::getDocumentId,
+                        Collectors.mapping(HistoryResponse::from, Collectors.toList())));
+    }
+
+    private int archivePartition(Partition partition) {
+        int copied = jdbcTemplate.update("INSERT INTO history_archive " +
+                "(id, document_id, initiator, timestamp, action, comment) " +
+                "SELECT id, document_id, initiator, timestamp, action, comment FROM " + partition.name() +
+                " ORDER BY document_id, id ON CONFLICT (id) DO NOTHING");
+
+        if (partition.pending()) {
+            jdbcTemplate.execute("ALTER TABLE history DETACH PARTITION " + partition.name() + " FINALIZE");
+        } else if (partition.attached()) {
+            jdbcTemplate.execute("ALTER TABLE history DETACH PARTITION " + partition.name() + " CONCURRENTLY");
+        }
+        jdbcTemplate.execute("DROP TABLE " + partition.name());
+
+        log.info("Секция {} перенесена в архив истории. Скопировано строк: {}", partition.name(), copied);
+        return copied;
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "history_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    private record Partition(String name, boolean attached, boolean pending) {
+    }
+}
@@ -1,27 +1,83 @@
 package ru.arapov.itqgrouptask.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import ru.arapov.itqgrouptask.dto.HistoryResponse;
 import ru.arapov.itqgrouptask.model.Document;
 import ru.arapov.itqgrouptask.model.DocumentAction;
 import ru.arapov.itqgrouptask.model.HistoryEntry;
+import ru.arapov.itqgrouptask.repository.HistoryArchiveRepository;
 import ru.arapov.itqgrouptask.repository.HistoryRepository;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class HistoryService {
 
+    private static final Comparator<HistoryResponse> BY_ID = Comparator.comparing(HistoryResponse::id);
+
     private final HistoryRepository historyRepository;
 
-    public void saveHistory(Document document, DocumentAction action, String initiator, String comment) {
+    private final HistoryArchiveRepository historyArchiveRepository;
+
+    public HistoryEntry buildHistory(Document document, DocumentAction action, String initiator, String comment) {
         HistoryEntry history = new HistoryEntry();
         history.setDocument(document);
         history.setAction(action);
         history.setInitiator(initiator);
         history.setTimestamp(LocalDateTime.now());
         history.setComment(comment != null ? comment : "");
+        return history;
+    }
+
+    public List<HistoryResponse> historyPage(Long documentId, long afterId, int limit) {
+        List<HistoryResponse> hot = historyRepository.findPageAfter(documentId, afterId, Limit.of(limit)).stream()
+                .map(HistoryResponse::from)
+                .toList();
+        List<HistoryResponse> archived = historyArchiveRepository
+                .findByDocumentIdAndIdGreaterThanOrderByIdAsc(documentId, afterId, Limit.of(limit)).stream()
+                .map(HistoryResponse::from)
+                .toList();
+
+        return merge(hot, archived, limit, BY_ID);
+    }
+
+    public List<HistoryResponse> latestHistory(Long documentId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        List<HistoryResponse> hot = historyRepository.findLatest(documentId, Limit.of(limit)).stream()
+                .map(HistoryResponse::from)
+                .toList();
+        List<HistoryResponse> archived = hot.size() < limit
+                ? historyArchiveRepository.findByDocumentIdOrderByIdDesc(documentId, Limit.of(limit)).stream()
+                .map(HistoryResponse::from)
+                .toList()
+                : List.of();
+
+        return merge(hot, archived, limit, BY_ID.reversed()).reversed();
+    }
 
-        historyRepository.save(history);
+    private static List<HistoryResponse> merge(List<HistoryResponse> hot, List<HistoryResponse> archived,
+                                               int limit, Comparator<HistoryResponse> order) {
+        List<HistoryResponse> merged = new ArrayList<>(Math.min(limit, hot.size() + archived.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < hot.size() || j < archived.size())) {
+            HistoryResponse next = j >= archived.size()
+                    || (i < hot.size() && order.compare(hot.get(i), archived.get(j)) <= 0)
+                    ? hot.get(i++)
+                    : archived.get(j++);
+            // Строка могла переехать в архив между двумя запросами
+            if (merged.isEmpty() || !merged.getLast().id().equals(next.id())) {
+                merged.add(next);
+            }
+        }
+        return merged;
     }
 }
@@ -0,0 +1,46 @@
+package ru.arapov.itqgrouptask.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.arapov.itqgrouptask.model.ApprovalOutboxEntry;
+import ru.arapov.itqgrouptask.repository.ApprovalRegistryRepository;
+import ru.arapov.itqgrouptask.utils.NumberGenerator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "approval.registry-sink", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcApprovalRegistrySink implements ApprovalRegistrySink {
+
+    private final ApprovalRegistryRepository approvalRegistryRepository;
+
+    private final NumberGenerator numberGenerator;
+
+    @Override
+    public Set<Long> register(List<ApprovalOutboxEntry> entries) {
+        if (entries.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<Long> registered = new HashSet<>(approvalRegistryRepository.findRegisteredDocumentIds(
+                entries.stream().map(ApprovalOutboxEntry::getDocumentId).toList()));
+
+        List<ApprovalOutboxEntry> pending = entries.stream()
+                .filter(entry -> !registered.contains(entry.getDocumentId()))
+                .toList();
+
+        if (!pending.isEmpty()) {
+            List<Long> insertedIds = approvalRegistryRepository.insertFromOutbox(
+                    pending.stream().map(ApprovalOutboxEntry::getId).toArray(Long[]::new));
+            if (!insertedIds.isEmpty()) {
+                approvalRegistryRepository.assignRegistryNumbers(insertedIds.toArray(Long[]::new),
+                        numberGenerator.registryNumbers(insertedIds.size()).toArray(String[]::new));
+            }
+            registered.addAll(insertedIds);
+        }
+        return registered;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.arapov.itqgrouptask.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.arapov.itqgrouptask.dto.WorkerQueueStats;
+import ru.arapov.itqgrouptask.utils.WorkerQueue;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+@Slf4j
+public class QueueBacklogMetrics {
+
+    private final DocumentQueueService documentQueueService;
+
+    private final long refreshIntervalNanos;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Map<WorkerQueue, WorkerQueueStats> snapshot = Map.of();
+
+    private volatile long refreshedAt;
+
+    public QueueBacklogMetrics(MeterRegistry registry,
+                               DocumentQueueService documentQueueService,
+                               @Value("${metrics.queue-refresh:10s}") Duration refreshInterval) {
+        this.documentQueueService = documentQueueService;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.refreshedAt = System.nanoTime() - refreshIntervalNanos;
+
+        for (WorkerQueue queue : WorkerQueue.values()) {
+            String status = queue.getSourceStatus().name();
+
+            Gauge.builder("worker.queue.depth", this, metrics -> metrics.depth(queue))
+                    .description("Количество документов, ожидающих обработки воркером")
+                    .tag("queue", queue.name().toLowerCase())
+                    .tag("status", status)
+                    .baseUnit("documents")
+                    .register(registry);
+            Gauge.builder("worker.queue.oldest.age", this, metrics -> metrics.oldestAge(queue))
+                    .description("Возраст самого старого документа в очереди")
+                    .tag("queue", queue.name().toLowerCase())
+                    .tag("status", status)
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+    }
+
+    private double depth(WorkerQueue queue) {
+        WorkerQueueStats stats = current().get(queue);
+        return stats != null ? stats.depth() : Double.NaN;
+    }
+
+    private double oldestAge(WorkerQueue queue) {
+        WorkerQueueStats stats = current().get(queue);
+        return stats != null ? stats.oldestAgeSeconds() : Double.NaN;
+    }
+
+    private Map<WorkerQueue, WorkerQueueStats> current() {
+        if (System.nanoTime() - refreshedAt < refreshIntervalNanos || !refreshLock.tryLock()) {
+            return snapshot;
+        }
+
+        try {
+            Map<WorkerQueue, WorkerQueueStats> fresh = new EnumMap<>(WorkerQueue.class);
+            for (WorkerQueue queue : WorkerQueue.values()) {
+                fresh.put(queue, documentQueueService.queueStats(queue, 0, 0));
+            }
+            snapshot = fresh;
+        } catch (Exception e) {
+            log.warn("Не удалось обновить метрики очередей: {}", e.getMessage());
+        } finally {
+            refreshedAt = System.nanoTime();
+            refreshLock.unlock();
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,402 @@
+package ru.arapov.itqgrouptask.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.arapov.itqgrouptask.dto.BulkCreateRequest;
+import ru.arapov.itqgrouptask.dto.DocumentRequest;
+import ru.arapov.itqgrouptask.dto.DocumentResponse;
+import ru.arapov.itqgrouptask.dto.OperationResult;
+import ru.arapov.itqgrouptask.dto.StressTestReport;
+import ru.arapov.itqgrouptask.dto.StressTestRequest;
+import ru.arapov.itqgrouptask.utils.BackgroundWorkGate;
+import ru.arapov.itqgrouptask.utils.LoadStats;
+import ru.arapov.itqgrouptask.utils.StressOperation;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный прогон внутри процесса: потоки на виртуальных потоках выполняют смесь операций над набором
+ * свежих документов, от одного горячего ключа (hotKeyRatio = 1) до равномерного разброса (hotKeyRatio = 0).
+ * Операции идут напрямую в DocumentAtomicService, чтобы дедлоки и ошибки сериализации не маскировались
+ * под CONFLICT. На время прогона воркер очередей и ретранслятор outbox этого узла приостанавливаются:
+ * иначе они подхватили бы свежие черновики, их переходы попали бы в инварианты как чужие, а их блокировки
+ * в замеры конкуренции. После прогона инварианты проверяются по базе.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class StressTestService {
+
+    private static final String INITIATOR = "stress-test";
+
+    private static final String COMMENT = "нагрузочный тест";
+
+    private static final long LOCK_SAMPLE_INTERVAL_MS = 50;
+
+    private static final String DEADLOCK_STATE = "40P01";
+
+    private static final String SERIALIZATION_FAILURE_STATE = "40001";
+
+    private final DocumentService documentService;
+
+    private final DocumentAtomicService documentAtomicService;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BackgroundWorkGate workGate;
+
+    public StressTestReport run(StressTestRequest request) {
+        return workGate.runPaused(() -> runIsolated(request));
+    }
+
+    private StressTestReport runIsolated(StressTestRequest request) {
+        int documents = request.documents() != null ? request.documents() : 100;
+        int threads = request.threads() != null ? request.threads() : 50;
+        int attempts = request.attempts() != null ? request.attempts() : 20;
+        double hotKeyRatio = request.hotKeyRatio() != null ? request.hotKeyRatio() : 0.0;
+        int batchSize = request.batchSize() != null ? request.batchSize() : 10;
+        Map<StressOperation, Integer> mix = resolveMix(request.mix());
+
+        log.info("Запуск нагрузочного теста. Документов: {}, потоков: {}, операций на поток: {}, " +
+                "доля горячего ключа: {}, смесь: {}", documents, threads, attempts, hotKeyRatio, mix);
+
+        List<Long> ids = seed(documents);
+        StressRun run = new StressRun(ids, hotKeyRatio, batchSize, cumulativeWeights(mix));
+        LockWaitSampler sampler = new LockWaitSampler();
+        Thread samplerThread = Thread.ofVirtual().start(sampler);
+
+        CountDownLatch startSignal = new CountDownLatch(1);
+        long startTime;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> runWorker(run, startSignal, attempts));
+            }
+            startTime = System.nanoTime();
+            startSignal.countDown();
+        }
+        long totalNanos = System.nanoTime() - startTime;
+
+        sampler.stop();
+        try {
+            samplerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<String> violations = new ArrayList<>(run.violations);
+        violations.addAll(checkInvariants(run));
+        double seconds = totalNanos / 1_000_000_000.0;
+
+        StressTestReport report = StressTestReport.builder()
+                .documents(documents)
+                .threads(threads)
+                .attempts(attempts)
+                .hotKeyRatio(hotKeyRatio)
+                .batchSize(batchSize)
+                .mix(mixByKey(mix))
+                .totalOperations(run.stats.totalCount())
+                .totalTime(TimeUnit.NANOSECONDS.toMillis(totalNanos))
+                .throughput(run.stats.totalCount() / seconds)
+                .operations(run.stats.summarize(seconds))
+                .outcomes(run.outcomesByKey())
+                .deadlocks(run.deadlocks.sum())
+                .serializationFailures(run.serializationFailures.sum())
+                .lockWaitMs(sampler.lockWaitMs())
+                .maxLockWaiters(sampler.maxWaiters)
+                .invariantViolations(violations)
+                .build();
+
+        log.info("Нагрузочный тест завершен. Операций: {}, время: {} мс, {} оп/с, дедлоков: {}, " +
+                        "ошибок сериализации: {}, ожидание блокировок: {} мс, нарушений инвариантов: {}",
+                report.totalOperations(), report.totalTime(), String.format("%.1f", report.throughput()),
+                report.deadlocks(), report.serializationFailures(), String.format("%.1f", report.lockWaitMs()),
+                violations.size());
+        violations.forEach(violation -> log.error("Нарушение инварианта: {}", violation));
+
+        return report;
+    }
+
+    private List<Long> seed(int documents) {
+        List<DocumentRequest> requests = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            requests.add(new DocumentRequest("Нагрузочный тест", "Стресс-тест " + i, INITIATOR));
+        }
+        return documentService.createDocuments(new BulkCreateRequest(requests)).stream()
+                .map(DocumentResponse::id)
+                .toList();
+    }
+
+    private void runWorker(StressRun run, CountDownLatch startSignal, int attempts) {
+        try {
+            startSignal.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        for (int a = 0; a < attempts; a++) {
+            StressOperation operation = run.pickOperation();
+            long startTime = System.nanoTime();
+            boolean success = execute(run, operation);
+            run.stats.record(operation, System.nanoTime() - startTime, success);
+        }
+    }
+
+    private boolean execute(StressRun run, StressOperation operation) {
+        try {
+            List<OperationResult> results = switch (operation) {
+                case SUBMIT -> List.of(documentAtomicService.submitAtomicDocument(
+                        run.pickDocument(), INITIATOR, COMMENT));
+                case APPROVE -> List.of(documentAtomicService.approveAtomicDocument(
+                        run.pickDocument(), INITIATOR, COMMENT));
+                case BATCH_SUBMIT -> documentAtomicService.submitBatch(run.pickBatch(), INITIATOR, COMMENT);
+                case BATCH_APPROVE -> documentAtomicService.approveBatch(run.pickBatch(), INITIATOR, COMMENT);
+                case READ -> {
+                    documentService.getDocumentView(run.pickDocument());
+                    yield List.of();
+                }
+            };
+
+            if (operation == StressOperation.READ) {
+                run.count(operation, OperationResult.ResultStatus.SUCCESS.name());
+            }
+            for (OperationResult result : results) {
+                run.count(operation, result.status().name());
+                if (result.status() == OperationResult.ResultStatus.SUCCESS) {
+                    run.recordTransition(operation, result.id());
+                }
+            }
+            return true;
+
+        } catch (Exception e) {
+            String sqlState = sqlState(e);
+            if (DEADLOCK_STATE.equals(sqlState)) {
+                run.deadlocks.increment();
+                run.count(operation, "DEADLOCK");
+            } else if (SERIALIZATION_FAILURE_STATE.equals(sqlState)) {
+                run.serializationFailures.increment();
+                run.count(operation, "SERIALIZATION_FAILURE");
+            } else {
+                run.count(operation, "ERROR");
+                log.debug("Ошибка операции {}: {}", operation, e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    private List<String> checkInvariants(StressRun run) {
+        Long[] ids = run.documentIds.toArray(Long[]::new);
+        List<String> violations = new ArrayList<>();
+
+        jdbcTemplate.queryForList("SELECT document_id FROM approval_registry " +
+                        "WHERE document_id = ANY(CAST(? AS bigint[])) GROUP BY document_id HAVING count(*) > 1",
+                Long.class, (Object) ids)
+                .forEach(id -> violations.add("Несколько записей в реестре для документа " + id));
+
+        jdbcTemplate.queryForList("SELECT d.id FROM documents d " +
+                        "LEFT JOIN approval_registry r ON r.document_id = d.id " +
+                        "WHERE d.id = ANY(CAST(? AS bigint[])) AND (d.status = 'APPROVED') <> (r.id IS NOT NULL " +
+                        "OR EXISTS (SELECT 1 FROM approval_outbox o WHERE o.document_id = d.id))",
+                Long.class, (Object) ids)
+                .forEach(id -> violations.add("Статус документа " + id + " не согласован с реестром"));
+
+        jdbcTemplate.queryForList("SELECT d.id FROM documents d " +
+                        "LEFT JOIN history h ON h.document_id = d.id " +
+                        "WHERE d.id = ANY(CAST(? AS bigint[])) GROUP BY d.id, d.status " +
+                        "HAVING count(h.id) FILTER (WHERE h.action = 'SUBMIT') <> " +
+                        "CASE WHEN d.status IN ('SUBMITTED', 'APPROVED', 'REGISTRY_REJECTED') THEN 1 ELSE 0 END " +
+                        "OR count(h.id) FILTER (WHERE h.action = 'APPROVE') - " +
+                        "count(h.id) FILTER (WHERE h.action = 'REVERT') <> " +
+                        "CASE WHEN d.status = 'APPROVED' THEN 1 ELSE 0 END",
+                Long.class, (Object) ids)
+                .forEach(id -> violations.add("История документа " + id + " не согласована со статусом"));
+
+        Map<String, Object> counts = jdbcTemplate.queryForMap("SELECT " +
+                        "count(*) FILTER (WHERE status IN ('SUBMITTED', 'APPROVED', 'REGISTRY_REJECTED')) AS submitted, " +
+                        "count(*) FILTER (WHERE status IN ('APPROVED', 'REGISTRY_REJECTED')) AS approved " +
+                        "FROM documents WHERE id = ANY(CAST(? AS bigint[]))",
+                (Object) ids);
+        long submitted = ((Number) counts.get("submitted")).longValue();
+        long approved = ((Number) counts.get("approved")).longValue();
+        if (submitted != run.submitted.size()) {
+            violations.add("Успешных отправок " + run.submitted.size() + ", а отправлено в базе " + submitted);
+        }
+        if (approved != run.approved.size()) {
+            violations.add("Успешных утверждений " + run.approved.size() + ", а утверждено в базе " + approved);
+        }
+
+        return violations;
+    }
+
+    private static String sqlState(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                return sqlException.getSQLState();
+            }
+        }
+        return null;
+    }
+
+    private static Map<StressOperation, Integer> resolveMix(Map<StressOperation, Integer> requested) {
+        Map<StressOperation, Integer> mix = new EnumMap<>(StressOperation.class);
+        for (StressOperation operation : StressOperation.values()) {
+            Integer weight = requested == null
+                    ? Integer.valueOf(operation.getDefaultWeight())
+                    : requested.get(operation);
+            mix.put(operation, weight != null ? Math.max(weight, 0) : 0);
+        }
+        return mix;
+    }
+
+    private static int[] cumulativeWeights(Map<StressOperation, Integer> mix) {
+        StressOperation[] operations = StressOperation.values();
+        int[] cumulative = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += mix.get(operations[i]);
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    private static Map<String, Integer> mixByKey(Map<StressOperation, Integer> mix) {
+        Map<String, Integer> byKey = new LinkedHashMap<>();
+        mix.forEach((operation, weight) -> byKey.put(operation.getKey(), weight));
+        return byKey;
+    }
+
+    private static final class StressRun {
+
+        private final List<Long> documentIds;
+
+        private final double hotKeyRatio;
+
+        private final int batchSize;
+
+        private final int[] cumulativeWeights;
+
+        private final LoadStats<StressOperation> stats =
+                new LoadStats<>(StressOperation.class, StressOperation::getKey);
+
+        private final Map<StressOperation, Map<String, LongAdder>> outcomes = new EnumMap<>(StressOperation.class);
+
+        private final LongAdder deadlocks = new LongAdder();
+
+        private final LongAdder serializationFailures = new LongAdder();
+
+        private final Set<Long> submitted = ConcurrentHashMap.newKeySet();
+
+        private final Set<Long> approved = ConcurrentHashMap.newKeySet();
+
+        private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+
+        private StressRun(List<Long> documentIds, double hotKeyRatio, int batchSize, int[] cumulativeWeights) {
+            this.documentIds = documentIds;
+            this.hotKeyRatio = hotKeyRatio;
+            this.batchSize = batchSize;
+            this.cumulativeWeights = cumulativeWeights;
+            for (StressOperation operation : StressOperation.values()) {
+                outcomes.put(operation, new ConcurrentHashMap<>());
+            }
+        }
+
+        private StressOperation pickOperation() {
+            int roll = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (roll < cumulativeWeights[i]) {
+                    return StressOperation.values()[i];
+                }
+            }
+            return StressOperation.READ;
+        }
+
+        private Long pickDocument() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return random.nextDouble() < hotKeyRatio
+                    ? documentIds.getFirst()
+                    : documentIds.get(random.nextInt(documentIds.size()));
+        }
+
+        private List<Long> pickBatch() {
+            List<Long> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(pickDocument());
+            }
+            return batch;
+        }
+
+        private void count(StressOperation operation, String outcome) {
+            outcomes.get(operation).computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        }
+
+        private void recordTransition(StressOperation operation, Long id) {
+            boolean submit = operation == StressOperation.SUBMIT || operation == StressOperation.BATCH_SUBMIT;
+            Set<Long> target = submit ? submitted : approved;
+            if (!target.add(id)) {
+                violations.add("Документ " + id + " повторно успешно " + (submit ? "отправлен" : "утвержден"));
+            }
+        }
+
+        private Map<String, Map<String, Long>> outcomesByKey() {
+            Map<String, Map<String, Long>> byKey = new LinkedHashMap<>();
+            outcomes.forEach((operation, counters) -> {
+                if (!counters.isEmpty()) {
+                    Map<String, Long> values = new TreeMap<>();
+                    counters.forEach((outcome, counter) -> values.put(outcome, counter.sum()));
+                    byKey.put(operation.getKey(), values);
+                }
+            });
+            return byKey;
+        }
+    }
+
+    private final class LockWaitSampler implements Runnable {
+
+        private volatile boolean running = true;
+
+        private long waiterSamples;
+
+        private int maxWaiters;
+
+        @Override
+        public void run() {
+            while (running) {
+                Integer waiting = jdbcTemplate.queryForObject("SELECT count(*) FROM pg_stat_activity " +
+                        "WHERE datname = current_database() AND wait_event_type = 'Lock'", Integer.class);
+                int value = waiting != null ? waiting : 0;
+                waiterSamples += value;
+                maxWaiters = Math.max(maxWaiters, value);
+                try {
+                    Thread.sleep(LOCK_SAMPLE_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private void stop() {
+            running = false;
+        }
+
+        private double lockWaitMs() {
+            return (double) waiterSamples * LOCK_SAMPLE_INTERVAL_MS;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.arapov.itqgrouptask.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class AdaptiveBatchSizer {
+
+    private final String name;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    private final long targetLatencyMs;
+
+    private final double maxConflictRate;
+
+    private int currentSize;
+
+    public AdaptiveBatchSizer(String name, int initialSize, int minSize, int maxSize,
+                              long targetLatencyMs, double maxConflictRate) {
+        this.name = name;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetLatencyMs = targetLatencyMs;
+        this.maxConflictRate = maxConflictRate;
+        this.currentSize = Math.clamp(initialSize, minSize, maxSize);
+    }
+
+    public synchronized int currentSize() {
+        return currentSize;
+    }
+
+    public synchronized void record(int requestedSize, int processed, long latencyMs, double conflictRate) {
+        int previous = currentSize;
+
+        if (latencyMs > targetLatencyMs || conflictRate > maxConflictRate) {
+            currentSize = Math.max(minSize, currentSize / 2);
+        } else if (processed >= requestedSize) {
+            currentSize = Math.min(maxSize, currentSize + Math.max(1, currentSize / 4));
+        }
+
+        if (previous != currentSize) {
+            log.debug("Размер пакета {} изменен: {} -> {} (время: {} мс, доля конфликтов: {})",
+                    name, previous, currentSize, latencyMs, conflictRate);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package ru.arapov.itqgrouptask.utils;
+
+public enum ApprovalRegistryMode {
+    SYNC,
+    SAGA
+}
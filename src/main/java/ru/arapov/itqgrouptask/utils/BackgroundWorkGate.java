@@ -0,0 +1,43 @@
+package ru.arapov.itqgrouptask.utils;
+
+import org.springframework.stereotype.Component;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Пропуск для фоновой обработки (воркер очередей, ретранслятор outbox): каждый пакет выполняется под
+ * разделяемой блокировкой, а runPaused берет исключительную, дожидается уже начатых пакетов и не пускает
+ * новые до своего завершения. Блокировка честная, поэтому ожидающая пауза не голодает за потоком пакетов.
+ */
+@Component
+public class BackgroundWorkGate {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+
+    public boolean enter(long timeoutMillis) throws InterruptedException {
+        return lock.readLock().tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean tryEnter() {
+        try {
+            return enter(0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void exit() {
+        lock.readLock().unlock();
+    }
+
+    public <T> T runPaused(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -1,23 +1,31 @@
 package ru.arapov.itqgrouptask.utils;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
-import ru.arapov.itqgrouptask.dto.DocumentRequest;
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.util.Properties;
+import org.springframework.web.client.RestClientException;
+import ru.arapov.itqgrouptask.dto.GeneratorReport;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Component
 @Slf4j
+@RequiredArgsConstructor
 public class DocumentGenerator implements CommandLineRunner {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
 
-    @Value("${generator.api-url:http://localhost:8080/api/documents}")
-    private String apiUrl;
+    private final JsonMapper jsonMapper;
 
     @Override
     public void run(String... args) {
@@ -30,45 +38,135 @@ public class DocumentGenerator implements CommandLineRunner {
     }
 
     private void generate() {
-        log.info("=== ГЕНЕРАЦИЯ ДОКУМЕНТОВ ===");
+        log.info("=== ГЕНЕРАЦИЯ НАГРУЗКИ ===");
 
         try {
-            Properties props = new Properties();
-            try (InputStream input = new FileInputStream("generator.properties")) {
-                props.load(input);
+            GeneratorSettings settings = GeneratorSettings.load(Path.of("generator.properties"));
+            LoadClient client = new LoadClient(settings.apiUrl(), settings.batchSize());
+
+            log.info("Создание начальных документов: {}", settings.seedCount());
+            client.seed(settings.seedCount());
+
+            log.info("Режим: {}, клиентов: {}, целевой rps: {}, прогрев: {} с, замер: {} с",
+                    settings.openLoop() ? "open-loop" : "closed-loop", settings.clients(), settings.targetRate(),
+                    settings.warmup().toSeconds(), settings.duration().toSeconds());
+
+            GeneratorReport report = runLoad(settings, client);
+            logReport(settings, report);
+            writeReport(settings, report);
+
+        } catch (Exception e) {
+            log.error("Ошибка генерации нагрузки: {}", e.getMessage(), e);
+        }
+    }
+
+    private GeneratorReport runLoad(GeneratorSettings settings, LoadClient client) {
+        LoadStats<GeneratorOperation> stats = new LoadStats<>(GeneratorOperation.class, GeneratorOperation::getKey);
+        int[] cumulativeWeights = cumulativeWeights(settings);
+        LocalDateTime startedAt = LocalDateTime.now();
+        LoadSchedule schedule = new LoadSchedule(settings);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < settings.clients(); i++) {
+                executor.submit(() -> runClient(client, schedule, stats, cumulativeWeights));
             }
+        }
 
-            int total = Integer.parseInt(props.getProperty("count", "10"));
-            log.info("Всего документов для создания: {}", total);
+        double seconds = schedule.measuredSeconds();
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        settings.mix().forEach((operation, weight) -> mix.put(operation.getKey(), weight));
+
+        return GeneratorReport.builder()
+                .startedAt(startedAt.toString())
+                .mode(settings.openLoop() ? "open-loop" : "closed-loop")
+                .clients(settings.clients())
+                .targetRate(settings.targetRate())
+                .warmupSeconds(settings.warmup().toSeconds())
+                .durationSeconds(settings.duration().toSeconds())
+                .mix(mix)
+                .totalOperations(stats.totalCount())
+                .throughput(stats.totalCount() / seconds)
+                .operations(stats.summarize(seconds))
+                .build();
+    }
 
-            long startTime = System.currentTimeMillis();
-            int success = 0;
+    private void runClient(LoadClient client, LoadSchedule schedule, LoadStats<GeneratorOperation> stats,
+                           int[] cumulativeWeights) {
+        try {
+            while (true) {
+                long scheduledAt = schedule.next();
+                if (schedule.isOver(scheduledAt)) {
+                    return;
+                }
+                schedule.awaitSlot(scheduledAt);
 
-            for (int i = 0; i < total; i++) {
+                GeneratorOperation operation = client.resolve(pick(cumulativeWeights));
+                boolean success = true;
                 try {
-                    DocumentRequest request = new DocumentRequest(
-                            "Generator",
-                            "Документ " + (i + 1),
-                            "SYSTEM"
-                    );
+                    client.execute(operation);
+                } catch (RestClientException e) {
+                    success = false;
+                    log.debug("Ошибка операции {}: {}", operation, e.getMessage());
+                }
 
-                    restTemplate.postForObject(apiUrl, request, Object.class);
-                    success++;
+                if (schedule.isMeasured(scheduledAt)) {
+                    stats.record(operation, System.nanoTime() - scheduledAt, success);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-                    log.info("Создан {}/{}", i + 1, total);
+    private int[] cumulativeWeights(GeneratorSettings settings) {
+        GeneratorOperation[] operations = GeneratorOperation.values();
+        int[] cumulative = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += settings.mix().get(operations[i]);
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
 
-                } catch (Exception e) {
-                    log.error("Ошибка создания документа {}/{}: {}", i + 1, total, e.getMessage());
-                }
+    private GeneratorOperation pick(int[] cumulativeWeights) {
+        int roll = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return GeneratorOperation.values()[i];
             }
+        }
+        return GeneratorOperation.CREATE;
+    }
 
-            long time = System.currentTimeMillis() - startTime;
-            log.info("=== ГОТОВО ===");
-            log.info("Создано: {}/{}", success, total);
-            log.info("Время: {} мс", time);
+    private void logReport(GeneratorSettings settings, GeneratorReport report) {
+        log.info("=== ГОТОВО ===");
+        log.info("Всего операций: {}, пропускная способность: {} оп/с",
+                report.totalOperations(), String.format("%.1f", report.throughput()));
 
-        } catch (Exception e) {
-            log.error("Ошибка: {}", e.getMessage());
+        if (settings.openLoop() && report.throughput() < settings.targetRate() * 0.9) {
+            log.warn("Сервис не держит целевую нагрузку {} оп/с, задержки включают ожидание в очереди",
+                    settings.targetRate());
+        }
+
+        report.operations().forEach((operation, latency) -> log.info(
+                "{}: {} шт, ошибок {}, {} оп/с, p50 {} мс, p90 {} мс, p99 {} мс, p99.9 {} мс, max {} мс",
+                operation, latency.count(), latency.errors(), format(latency.throughput()),
+                format(latency.p50Ms()), format(latency.p90Ms()), format(latency.p99Ms()),
+                format(latency.p999Ms()), format(latency.maxMs())));
+    }
+
+    private void writeReport(GeneratorSettings settings, GeneratorReport report) throws Exception {
+        Files.createDirectories(settings.outputDir());
+        Path file = settings.outputDir().resolve("run-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".json");
+
+        try (OutputStream output = Files.newOutputStream(file)) {
+            jsonMapper.writerWithDefaultPrettyPrinter().writeValue(output, report);
         }
+        log.info("Результаты записаны в {}", file.toAbsolutePath());
+    }
+
+    private static String format(double value) {
+        return String.format("%.2f", value);
     }
 }
@@ -0,0 +1,159 @@
+package ru.arapov.itqgrouptask.utils;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.arapov.itqgrouptask.service.DocumentChangeService;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Триггер на documents после коммита шлет NOTIFY в канал document_queue с новым статусом документа,
+ * слушатель держит для LISTEN отдельное соединение вне пула, будит потребителей соответствующей очереди
+ * и ожидающих ленту изменений. После переподключения будятся все, так как уведомления за время обрыва потеряны.
+ */
+@Component
+@Slf4j
+public class DocumentQueueListener {
+
+    private static final String CHANNEL = "document_queue";
+
+    private final DocumentWorker documentWorker;
+
+    private final DocumentChangeService documentChangeService;
+
+    private final String url;
+
+    private final String username;
+
+    private final String password;
+
+    private final boolean enabled;
+
+    private final int pollTimeout;
+
+    private final long reconnectDelay;
+
+    private volatile boolean running;
+
+    private volatile Connection connection;
+
+    private Thread thread;
+
+    public DocumentQueueListener(DocumentWorker documentWorker,
+                                 DocumentChangeService documentChangeService,
+                                 @Value("${spring.datasource.url}") String url,
+                                 @Value("${spring.datasource.username}") String username,
+                                 @Value("${spring.datasource.password}") String password,
+                                 @Value("${worker.listener-enabled:true}") boolean enabled,
+                                 @Value("${worker.notify-poll-timeout:1000}") int pollTimeout,
+                                 @Value("${worker.notify-reconnect-delay:5000}") long reconnectDelay) {
+        this.documentWorker = documentWorker;
+        this.documentChangeService = documentChangeService;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.enabled = enabled;
+        this.pollTimeout = pollTimeout;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+
+        running = true;
+        thread = Thread.ofVirtual().name("worker-listener").start(this::listen);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+
+        thread.interrupt();
+        closeConnection();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    private void listen() {
+        while (running) {
+            try {
+                connection = DriverManager.getConnection(url, username, password);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                log.info("Слушатель очередей подключен к каналу {}", CHANNEL);
+                documentWorker.wakeAll();
+                documentChangeService.wake();
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeout);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.error("Ошибка соединения слушателя очередей: {}", e.getMessage());
+                }
+            } finally {
+                closeConnection();
+            }
+
+            if (running && !pause()) {
+                return;
+            }
+        }
+    }
+
+    private void dispatch(String status) {
+        if ("DRAFT".equals(status)) {
+            documentWorker.wake(WorkerQueue.SUBMIT);
+        } else if ("SUBMITTED".equals(status)) {
+            documentWorker.wake(WorkerQueue.APPROVE);
+        }
+        documentChangeService.wake();
+    }
+
+    private void closeConnection() {
+        Connection current = connection;
+        connection = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                log.debug("Ошибка закрытия соединения слушателя: {}", e.getMessage());
+            }
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(reconnectDelay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,53 +1,177 @@
 package ru.arapov.itqgrouptask.utils;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import ru.arapov.itqgrouptask.model.Document;
-import ru.arapov.itqgrouptask.model.DocumentStatus;
-import ru.arapov.itqgrouptask.repository.DocumentRepository;
+import ru.arapov.itqgrouptask.dto.QueueBatchOutcome;
+import ru.arapov.itqgrouptask.dto.WorkerQueueStats;
+import ru.arapov.itqgrouptask.service.DocumentMetrics;
+import ru.arapov.itqgrouptask.service.DocumentQueueService;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class DocumentWorker {
 
-    private final DocumentRepository documentRepository;
+    private final DocumentQueueService documentQueueService;
 
-    @org.springframework.beans.factory.annotation.Value("${worker.batch-size}")
-    private int batchSize;
+    private final DocumentMetrics documentMetrics;
 
-    @Scheduled(fixedDelayString = "${worker.submit-interval:60000}")
-    @Transactional
-    public void processSubmitQueue() {
-        List<Document> docs = documentRepository.findAndLockDocuments(
-                DocumentStatus.DRAFT.name(), batchSize);
+    private final BackgroundWorkGate workGate;
 
-        if (docs.isEmpty()) return;
+    private final boolean enabled;
 
-        List<Long> ids = docs.stream().map(Document::getId).toList();
+    private final int consumers;
 
-       int updated = documentRepository.bulkUpdateStatus(ids, DocumentStatus.SUBMITTED);
+    private final Map<WorkerQueue, Long> idleDelays = new EnumMap<>(WorkerQueue.class);
 
-        log.info("Обработано {} DRAFT документов", updated);
+    private final Map<WorkerQueue, AdaptiveBatchSizer> batchSizers = new EnumMap<>(WorkerQueue.class);
+
+    private final Map<WorkerQueue, WakeSignal> wakeSignals = new EnumMap<>(WorkerQueue.class);
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public DocumentWorker(DocumentQueueService documentQueueService,
+                          DocumentMetrics documentMetrics,
+                          BackgroundWorkGate workGate,
+                          @Value("${worker.enabled:true}") boolean enabled,
+                          @Value("${worker.consumers:2}") int consumers,
+                          @Value("${worker.batch-size}") int batchSize,
+                          @Value("${worker.min-batch-size:10}") int minBatchSize,
+                          @Value("${worker.max-batch-size:1000}") int maxBatchSize,
+                          @Value("${worker.target-batch-latency:500}") long targetBatchLatencyMs,
+                          @Value("${worker.max-conflict-rate:0.1}") double maxConflictRate,
+                          @Value("${worker.submit-interval:60000}") long submitInterval,
+                          @Value("${worker.approve-interval:60000}") long approveInterval) {
+        this.documentQueueService = documentQueueService;
+        this.documentMetrics = documentMetrics;
+        this.workGate = workGate;
+        this.enabled = enabled;
+        this.consumers = consumers;
+
+        idleDelays.put(WorkerQueue.SUBMIT, submitInterval);
+        idleDelays.put(WorkerQueue.APPROVE, approveInterval);
+
+        for (WorkerQueue queue : WorkerQueue.values()) {
+            batchSizers.put(queue, new AdaptiveBatchSizer(queue.name(), batchSize, minBatchSize, maxBatchSize,
+                    targetBatchLatencyMs, maxConflictRate));
+            wakeSignals.put(queue, new WakeSignal());
+        }
     }
 
-    @Scheduled(fixedDelayString = "${worker.approve-interval:60000}")
-    @Transactional
-    public void processApproveQueue() {
-        List<Document> docs = documentRepository.findAndLockDocuments(
-                DocumentStatus.SUBMITTED.name(), batchSize);
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
 
-        if (docs.isEmpty()) return;
+        running = true;
+        for (WorkerQueue queue : WorkerQueue.values()) {
+            for (int i = 0; i < consumers; i++) {
+                threads.add(Thread.ofVirtual()
+                        .name("worker-" + queue.name().toLowerCase() + "-" + i)
+                        .start(() -> consume(queue)));
+            }
+        }
 
-        List<Long> ids = docs.stream().map(Document::getId).toList();
+        log.info("=== WORKER ЗАПУЩЕН === Потоков на очередь: {}", consumers);
+    }
 
-        int updated = documentRepository.bulkUpdateStatus(ids, DocumentStatus.APPROVED);
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        threads.forEach(Thread::interrupt);
+        for (Thread thread : threads) {
+            try {
+                thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        threads.clear();
+    }
 
-        log.info("Обработано {} SUBMITTED документов", updated);
+    public void wake(WorkerQueue queue) {
+        wakeSignals.get(queue).signal();
     }
-}
 
+    public void wakeAll() {
+        wakeSignals.values().forEach(WakeSignal::signal);
+    }
+
+    public List<WorkerQueueStats> stats() {
+        return batchSizers.entrySet().stream()
+                .map(e -> documentQueueService.queueStats(e.getKey(), e.getValue().currentSize(),
+                        running ? consumers : 0))
+                .toList();
+    }
+
+    private void consume(WorkerQueue queue) {
+        AdaptiveBatchSizer batchSizer = batchSizers.get(queue);
+        WakeSignal wakeSignal = wakeSignals.get(queue);
+        long batchNumber = 0;
+
+        while (running) {
+            try {
+                long wakeGeneration = wakeSignal.generation();
+                boolean processed = false;
+                long cycleStart = System.nanoTime();
+
+                if (!workGate.enter(idleDelays.get(queue))) {
+                    continue;
+                }
+                try {
+                    int batchSize = batchSizer.currentSize();
+
+                    long startTime = System.currentTimeMillis();
+                    QueueBatchOutcome outcome = documentQueueService.processBatch(queue, batchSize);
+                    long batchTime = System.currentTimeMillis() - startTime;
+
+                    if (outcome.processed() > 0) {
+                        batchSizer.record(batchSize, outcome.processed(), batchTime, outcome.conflictRate());
+                        log.info("Очередь {}: пакет #{} завершен. Обработано: {}, Успешно: {}, Время: {} мс",
+                                queue, ++batchNumber, outcome.processed(), outcome.succeeded(), batchTime);
+                    }
+
+                    // Пакет без успешных переходов (ошибки реестра) прогрессом не считается: документы
+                    // остаются в очереди, и без паузы поток выбирал бы их снова и снова
+                    processed = outcome.succeeded() > 0;
+                } finally {
+                    workGate.exit();
+                }
+
+                documentMetrics.recordWorkerCycle(queue, cycleStart);
+
+                if (!processed) {
+                    wakeSignal.await(wakeGeneration, idleDelays.get(queue));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Ошибка в потоке очереди {}: {}", queue, e.getMessage());
+                if (!pause(idleDelays.get(queue))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ru.arapov.itqgrouptask.utils;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum GeneratorOperation {
+    CREATE("create", 40),
+    GET("get", 30),
+    SEARCH("search", 15),
+    SUBMIT("submit", 10),
+    APPROVE("approve", 5);
+
+    private final String key;
+
+    private final int defaultWeight;
+}
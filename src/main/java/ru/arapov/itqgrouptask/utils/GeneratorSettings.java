@@ -0,0 +1,59 @@
+package ru.arapov.itqgrouptask.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+public record GeneratorSettings(
+        String apiUrl,
+        int clients,
+        double targetRate,
+        Duration warmup,
+        Duration duration,
+        int seedCount,
+        int batchSize,
+        Map<GeneratorOperation, Integer> mix,
+        Path outputDir
+) {
+
+    public static GeneratorSettings load(Path file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            props.load(input);
+        }
+
+        Map<GeneratorOperation, Integer> mix = new EnumMap<>(GeneratorOperation.class);
+        for (GeneratorOperation operation : GeneratorOperation.values()) {
+            int weight = Integer.parseInt(props.getProperty("mix." + operation.getKey(),
+                    String.valueOf(operation.getDefaultWeight())));
+            if (weight < 0) {
+                throw new IllegalArgumentException("Вес операции не может быть отрицательным: mix." + operation.getKey());
+            }
+            mix.put(operation, weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Сумма весов операций в mix.* должна быть больше нуля");
+        }
+
+        return new GeneratorSettings(
+                props.getProperty("api-url", "http://localhost:8080/api/documents"),
+                Integer.parseInt(props.getProperty("clients", "16")),
+                Double.parseDouble(props.getProperty("target-rate", "0")),
+                Duration.ofSeconds(Long.parseLong(props.getProperty("warmup-seconds", "5"))),
+                Duration.ofSeconds(Long.parseLong(props.getProperty("duration-seconds", "30"))),
+                Integer.parseInt(props.getProperty("count", "1000")),
+                Integer.parseInt(props.getProperty("batch-size", "10")),
+                mix,
+                Path.of(props.getProperty("output-dir", "generator-results"))
+        );
+    }
+
+    public boolean openLoop() {
+        return targetRate > 0;
+    }
+}
@@ -0,0 +1,194 @@
+package ru.arapov.itqgrouptask.utils;
+
+import ru.arapov.itqgrouptask.dto.ExportFormat;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Потоковое чтение строк импорта из CSV (первая строка - заголовок) или NDJSON. В памяти держится только
+ * текущая строка, длина поля CSV и строки NDJSON ограничена, поэтому размер файла на потребление памяти не влияет.
+ */
+public class ImportRowReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_FIELD_LENGTH = 4096;
+
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final ExportFormat format;
+
+    private final BufferedReader reader;
+
+    private final JsonMapper jsonMapper;
+
+    private Map<String, Integer> header;
+
+    private long rowNumber;
+
+    private boolean lineTruncated;
+
+    public ImportRowReader(ExportFormat format, InputStream input, JsonMapper jsonMapper) {
+        this.format = format;
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.jsonMapper = jsonMapper;
+    }
+
+    public ImportRow next() throws IOException {
+        return format == ExportFormat.CSV ? nextCsv() : nextJson();
+    }
+
+    private ImportRow nextCsv() throws IOException {
+        if (header == null) {
+            List<String> names = readCsvRecord();
+            if (names == null) {
+                return null;
+            }
+            header = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                header.put(names.get(i).trim().toLowerCase(), i);
+            }
+        }
+
+        List<String> fields;
+        do {
+            fields = readCsvRecord();
+            if (fields == null) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.getFirst().isEmpty());
+
+        rowNumber++;
+        if (fields.size() != header.size()) {
+            return ImportRow.rejected(rowNumber, "Ожидалось полей: " + header.size() + ", получено: " + fields.size());
+        }
+        return new ImportRow(rowNumber, csvField(fields, "author"), csvField(fields, "title"),
+                csvField(fields, "initiator"), csvField(fields, "createdat"), null);
+    }
+
+    private ImportRow nextJson() throws IOException {
+        String line;
+        do {
+            line = readJsonLine();
+            if (line == null) {
+                return null;
+            }
+        } while (!lineTruncated && line.isBlank());
+
+        rowNumber++;
+        if (lineTruncated) {
+            return ImportRow.rejected(rowNumber, "Строка длиннее " + MAX_LINE_LENGTH + " символов");
+        }
+        try {
+            JsonNode node = jsonMapper.readTree(line);
+            return new ImportRow(rowNumber, jsonField(node, "author"), jsonField(node, "title"),
+                    jsonField(node, "initiator"), jsonField(node, "createdAt"), null);
+        } catch (JacksonException e) {
+            return ImportRow.rejected(rowNumber, "Некорректный JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private String readJsonLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        boolean read = false;
+        lineTruncated = false;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            read = true;
+            if (c == '\n') {
+                return line.toString();
+            }
+            if (line.length() < MAX_LINE_LENGTH) {
+                line.append((char) c);
+            } else {
+                lineTruncated = true;
+            }
+        }
+        return read ? line.toString() : null;
+    }
+
+    private List<String> readCsvRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean read = false;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            read = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        append(field, '"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    append(field, (char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                append(field, (char) c);
+            }
+        }
+
+        if (!read) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static void append(StringBuilder field, char c) {
+        if (field.length() <= MAX_FIELD_LENGTH) {
+            field.append(c);
+        }
+    }
+
+    private String csvField(List<String> fields, String name) {
+        Integer index = header.get(name);
+        return index != null ? fields.get(index) : null;
+    }
+
+    private static String jsonField(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        return value != null && !value.isNull() ? value.asString() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    public record ImportRow(long rowNumber, String author, String title, String initiator, String createdAt,
+                            String error) {
+
+        static ImportRow rejected(long rowNumber, String error) {
+            return new ImportRow(rowNumber, null, null, null, null, error);
+        }
+    }
+}
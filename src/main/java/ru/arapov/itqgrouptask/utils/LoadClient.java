@@ -0,0 +1,142 @@
+package ru.arapov.itqgrouptask.utils;
+
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+import ru.arapov.itqgrouptask.dto.BulkCreateRequest;
+import ru.arapov.itqgrouptask.dto.BulkOperationRequest;
+import ru.arapov.itqgrouptask.dto.DocumentRequest;
+import ru.arapov.itqgrouptask.dto.DocumentResponse;
+import ru.arapov.itqgrouptask.dto.OperationResult;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoadClient {
+
+    private static final int SEED_CHUNK_SIZE = 1000;
+
+    private static final String INITIATOR = "GENERATOR";
+
+    private final RestTemplate restTemplate;
+
+    private final String apiUrl;
+
+    private final int batchSize;
+
+    private final AtomicLong titleCounter = new AtomicLong();
+
+    private final List<Long> knownIds = new ArrayList<>();
+
+    private final Queue<Long> drafts = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Long> submitted = new ConcurrentLinkedQueue<>();
+
+    public LoadClient(String apiUrl, int batchSize) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.restTemplate = new RestTemplate(new JdkClientHttpRequestFactory(httpClient));
+        this.apiUrl = apiUrl;
+        this.batchSize = batchSize;
+    }
+
+    public void seed(int count) {
+        for (int created = 0; created < count; created += SEED_CHUNK_SIZE) {
+            List<DocumentRequest> requests = new ArrayList<>();
+            for (int i = created; i < Math.min(count, created + SEED_CHUNK_SIZE); i++) {
+                requests.add(newRequest());
+            }
+            DocumentResponse[] responses = restTemplate.postForObject(apiUrl + "/bulk",
+                    new BulkCreateRequest(requests), DocumentResponse[].class);
+            if (responses != null) {
+                for (DocumentResponse response : responses) {
+                    remember(response.id());
+                }
+            }
+        }
+    }
+
+    public GeneratorOperation resolve(GeneratorOperation operation) {
+        boolean available = switch (operation) {
+            case GET -> knownCount() > 0;
+            case SUBMIT -> !drafts.isEmpty();
+            case APPROVE -> !submitted.isEmpty();
+            default -> true;
+        };
+        return available ? operation : GeneratorOperation.CREATE;
+    }
+
+    public void execute(GeneratorOperation operation) {
+        switch (operation) {
+            case CREATE -> create();
+            case GET -> restTemplate.getForObject(apiUrl + "/{id}", byte[].class, randomKnownId());
+            case SEARCH -> search();
+            case SUBMIT -> transition("/submit", drafts, submitted);
+            case APPROVE -> transition("/approve", submitted, null);
+        }
+    }
+
+    private void create() {
+        DocumentResponse response = restTemplate.postForObject(apiUrl, newRequest(), DocumentResponse.class);
+        if (response != null) {
+            remember(response.id());
+        }
+    }
+
+    private void search() {
+        DocumentStatus[] statuses = DocumentStatus.values();
+        DocumentStatus status = statuses[ThreadLocalRandom.current().nextInt(statuses.length)];
+        restTemplate.getForObject(apiUrl + "/search?status={status}&page=0&size=20", byte[].class, status);
+    }
+
+    private void transition(String path, Queue<Long> source, Queue<Long> target) {
+        List<Long> ids = new ArrayList<>(batchSize);
+        Long id;
+        while (ids.size() < batchSize && (id = source.poll()) != null) {
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            create();
+            return;
+        }
+
+        OperationResult[] results = restTemplate.postForObject(apiUrl + path,
+                new BulkOperationRequest(ids, INITIATOR, null), OperationResult[].class);
+        if (target != null && results != null) {
+            for (OperationResult result : results) {
+                if (result.status() == OperationResult.ResultStatus.SUCCESS) {
+                    target.add(result.id());
+                }
+            }
+        }
+    }
+
+    private DocumentRequest newRequest() {
+        return new DocumentRequest("Generator", "Документ " + titleCounter.incrementAndGet(), INITIATOR);
+    }
+
+    private void remember(Long id) {
+        synchronized (knownIds) {
+            knownIds.add(id);
+        }
+        drafts.add(id);
+    }
+
+    private int knownCount() {
+        synchronized (knownIds) {
+            return knownIds.size();
+        }
+    }
+
+    private Long randomKnownId() {
+        synchronized (knownIds) {
+            return knownIds.get(ThreadLocalRandom.current().nextInt(knownIds.size()));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.arapov.itqgrouptask.utils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoadSchedule {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final long start;
+
+    private final long intervalNanos;
+
+    private final long measureFrom;
+
+    private final long deadline;
+
+    public LoadSchedule(GeneratorSettings settings) {
+        this.start = System.nanoTime();
+        this.intervalNanos = settings.openLoop() ? (long) (1_000_000_000L / settings.targetRate()) : 0;
+        this.measureFrom = start + settings.warmup().toNanos();
+        this.deadline = measureFrom + settings.duration().toNanos();
+    }
+
+    public long next() {
+        if (intervalNanos == 0) {
+            return System.nanoTime();
+        }
+        return start + sequence.getAndIncrement() * intervalNanos;
+    }
+
+    public void awaitSlot(long scheduledAt) throws InterruptedException {
+        long delay = scheduledAt - System.nanoTime();
+        if (delay > 0) {
+            Thread.sleep(Duration.ofNanos(delay));
+        }
+    }
+
+    public boolean isOver(long scheduledAt) {
+        return scheduledAt >= deadline;
+    }
+
+    public boolean isMeasured(long scheduledAt) {
+        return scheduledAt >= measureFrom;
+    }
+
+    public double measuredSeconds() {
+        return (System.nanoTime() - measureFrom) / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.arapov.itqgrouptask.utils;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import ru.arapov.itqgrouptask.dto.OperationLatency;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public class LoadStats<E extends Enum<E>> {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final E[] operations;
+
+    private final Function<E, String> keys;
+
+    private final Map<E, Histogram> latencies;
+
+    private final Map<E, LongAdder> errors;
+
+    public LoadStats(Class<E> type, Function<E, String> keys) {
+        this.operations = type.getEnumConstants();
+        this.keys = keys;
+        this.latencies = new EnumMap<>(type);
+        this.errors = new EnumMap<>(type);
+        for (E operation : operations) {
+            latencies.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public void record(E operation, long latencyNanos, boolean success) {
+        long micros = Math.clamp(TimeUnit.NANOSECONDS.toMicros(latencyNanos), 1, HIGHEST_TRACKABLE_MICROS);
+        latencies.get(operation).recordValue(micros);
+        if (!success) {
+            errors.get(operation).increment();
+        }
+    }
+
+    public long totalCount() {
+        return latencies.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    public Map<String, OperationLatency> summarize(double elapsedSeconds) {
+        Map<String, OperationLatency> summary = new LinkedHashMap<>();
+        for (E operation : operations) {
+            Histogram histogram = latencies.get(operation).copy();
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            summary.put(keys.apply(operation), OperationLatency.builder()
+                    .count(histogram.getTotalCount())
+                    .errors(errors.get(operation).sum())
+                    .throughput(histogram.getTotalCount() / elapsedSeconds)
+                    .meanMs(histogram.getMean() / 1000.0)
+                    .p50Ms(percentileMs(histogram, 50.0))
+                    .p90Ms(percentileMs(histogram, 90.0))
+                    .p99Ms(percentileMs(histogram, 99.0))
+                    .p999Ms(percentileMs(histogram, 99.9))
+                    .maxMs(histogram.getMaxValue() / 1000.0)
+                    .histogram(encode(histogram))
+                    .build());
+        }
+        return summary;
+    }
+
+    private static double percentileMs(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+}
@@ -0,0 +1,146 @@
+package ru.arapov.itqgrouptask.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.arapov.itqgrouptask.repository.ApprovalRegistryRepository;
+import ru.arapov.itqgrouptask.repository.DocumentRepository;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Номера документов берутся из блоков последовательности document_number_seq: каждый узел резервирует
+ * блок размером в шаг последовательности и раздает его из памяти, поэтому номера уникальны между узлами без повторов.
+ * Номера реестра идут без пропусков из счетчика registry_number_counter: строка счетчика блокируется
+ * до конца транзакции утверждения, откат возвращает номера обратно.
+ */
+@Component
+public class NumberGenerator {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final int NUMBER_DIGITS = 10;
+
+    private final LongSupplier documentBlockReserver;
+
+    private final LongSupplier documentBlockSizeLookup;
+
+    private final IntToLongFunction registryReserver;
+
+    private final Clock clock;
+
+    private final ReentrantLock refillLock = new ReentrantLock();
+
+    private volatile NumberBlock documentBlock = new NumberBlock(0, 0);
+
+    private volatile DatePrefix datePrefix = new DatePrefix("", Long.MIN_VALUE);
+
+    private long documentBlockSize;
+
+    @Autowired
+    public NumberGenerator(DocumentRepository documentRepository,
+                           ApprovalRegistryRepository approvalRegistryRepository) {
+        this(documentRepository::nextDocumentNumberBlock, documentRepository::documentNumberBlockSize,
+                approvalRegistryRepository::reserveRegistryNumbers, Clock.systemDefaultZone());
+    }
+
+    public NumberGenerator(LongSupplier documentBlockReserver, LongSupplier documentBlockSizeLookup,
+                           IntToLongFunction registryReserver, Clock clock) {
+        this.documentBlockReserver = documentBlockReserver;
+        this.documentBlockSizeLookup = documentBlockSizeLookup;
+        this.registryReserver = registryReserver;
+        this.clock = clock;
+    }
+
+    public String documentNumber() {
+        return format("DOC-", datePrefix(), nextDocumentValue());
+    }
+
+    public String registryNumber() {
+        return registryNumbers(1).getFirst();
+    }
+
+    public List<String> registryNumbers(int count) {
+        long last = registryReserver.applyAsLong(count);
+        String prefix = datePrefix();
+
+        List<String> numbers = new ArrayList<>(count);
+        for (long value = last - count + 1; value <= last; value++) {
+            numbers.add(format("REG-", prefix, value));
+        }
+        return numbers;
+    }
+
+    private long nextDocumentValue() {
+        while (true) {
+            NumberBlock block = documentBlock;
+            long value = block.next.getAndIncrement();
+            if (value < block.end) {
+                return value;
+            }
+
+            refillLock.lock();
+            try {
+                if (documentBlock == block) {
+                    documentBlock = reserveDocumentBlock();
+                }
+            } finally {
+                refillLock.unlock();
+            }
+        }
+    }
+
+    private NumberBlock reserveDocumentBlock() {
+        if (documentBlockSize == 0) {
+            documentBlockSize = documentBlockSizeLookup.getAsLong();
+        }
+        long start = documentBlockReserver.getAsLong();
+        return new NumberBlock(start, start + documentBlockSize);
+    }
+
+    private String datePrefix() {
+        DatePrefix prefix = datePrefix;
+        long now = clock.millis();
+        if (now >= prefix.validUntil) {
+            LocalDate today = LocalDate.ofInstant(Instant.ofEpochMilli(now), clock.getZone());
+            long validUntil = today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+            prefix = new DatePrefix(today.format(DATE_FORMAT), validUntil);
+            datePrefix = prefix;
+        }
+        return prefix.value;
+    }
+
+    private static String format(String type, String datePart, long value) {
+        String digits = Long.toString(value);
+        StringBuilder number = new StringBuilder(type.length() + datePart.length() + 1 + NUMBER_DIGITS)
+                .append(type)
+                .append(datePart)
+                .append('-');
+        for (int i = digits.length(); i < NUMBER_DIGITS; i++) {
+            number.append('0');
+        }
+        return number.append(digits).toString();
+    }
+
+    private static final class NumberBlock {
+
+        private final AtomicLong next;
+
+        private final long end;
+
+        private NumberBlock(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private record DatePrefix(String value, long validUntil) {
+    }
+}
@@ -0,0 +1,18 @@
+package ru.arapov.itqgrouptask.utils;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum StressOperation {
+    SUBMIT("submit", 30),
+    APPROVE("approve", 30),
+    BATCH_SUBMIT("batch-submit", 10),
+    BATCH_APPROVE("batch-approve", 10),
+    READ("read", 20);
+
+    private final String key;
+
+    private final int defaultWeight;
+}
@@ -0,0 +1,50 @@
+package ru.arapov.itqgrouptask.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Сигнал пробуждения со счетчиком поколений: ожидающий запоминает поколение до проверки очереди и засыпает,
+ * только если с тех пор никто не сигналил, поэтому сигнал между проверкой и ожиданием не теряется.
+ */
+public class WakeSignal {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition signalled = lock.newCondition();
+
+    private long generation;
+
+    public long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void signal() {
+        lock.lock();
+        try {
+            generation++;
+            signalled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean await(long seenGeneration, long timeoutMillis) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        lock.lock();
+        try {
+            while (generation == seenGeneration && remaining > 0) {
+                remaining = signalled.awaitNanos(remaining);
+            }
+            return generation != seenGeneration;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
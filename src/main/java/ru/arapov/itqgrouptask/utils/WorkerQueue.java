@@ -0,0 +1,14 @@
+package ru.arapov.itqgrouptask.utils;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+
+@Getter
+@RequiredArgsConstructor
+public enum WorkerQueue {
+    SUBMIT(DocumentStatus.DRAFT),
+    APPROVE(DocumentStatus.SUBMITTED);
+
+    private final DocumentStatus sourceStatus;
+}
@@ -0,0 +1,347 @@
+package ru.arapov.itqgrouptask;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import ru.arapov.itqgrouptask.dto.BulkOperationRequest;
+import ru.arapov.itqgrouptask.dto.DocumentRequest;
+import ru.arapov.itqgrouptask.dto.DocumentResponse;
+import ru.arapov.itqgrouptask.dto.StressTestReport;
+import ru.arapov.itqgrouptask.dto.StressTestRequest;
+import ru.arapov.itqgrouptask.exception.RegistryException;
+import ru.arapov.itqgrouptask.model.ApprovalOutboxEntry;
+import ru.arapov.itqgrouptask.model.DocumentAction;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+import ru.arapov.itqgrouptask.repository.ApprovalRegistryRepository;
+import ru.arapov.itqgrouptask.repository.DocumentRepository;
+import ru.arapov.itqgrouptask.repository.HistoryRepository;
+import ru.arapov.itqgrouptask.service.ApprovalOutboxRelay;
+import ru.arapov.itqgrouptask.service.ApprovalRegistrySink;
+import ru.arapov.itqgrouptask.service.DocumentResponseCache;
+import ru.arapov.itqgrouptask.service.DocumentService;
+import ru.arapov.itqgrouptask.service.JdbcApprovalRegistrySink;
+import ru.arapov.itqgrouptask.service.StressTestService;
+import ru.arapov.itqgrouptask.utils.BackgroundWorkGate;
+import ru.arapov.itqgrouptask.utils.DocumentWorker;
+import ru.arapov.itqgrouptask.utils.NumberGenerator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"worker.enabled=false", "approval.registry-mode=saga", "approval.registry-sink=test",
+        "approval.relay-delay=3600000", "approval.retry-initial-delay=60000"})
+@Import(ApprovalSagaTest.SinkConfiguration.class)
+public class ApprovalSagaTest {
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private ApprovalRegistryRepository registryRepository;
+
+    @Autowired
+    private HistoryRepository historyRepository;
+
+    @Autowired
+    private ApprovalOutboxRelay approvalOutboxRelay;
+
+    @Autowired
+    private ScriptedRegistrySink registrySink;
+
+    @Autowired
+    private DocumentResponseCache documentResponseCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BackgroundWorkGate backgroundWorkGate;
+
+    private final List<Long> documentIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        registrySink.rejected.clear();
+        registrySink.poisoned.clear();
+        registrySink.failing = false;
+
+        Long[] ids = documentIds.toArray(Long[]::new);
+        backgroundWorkGate.runPaused(() -> {
+            jdbcTemplate.update("DELETE FROM approval_registry WHERE document_id = ANY(CAST(? AS bigint[]))", (Object) ids);
+            jdbcTemplate.update("DELETE FROM history WHERE document_id = ANY(CAST(? AS bigint[]))", (Object) ids);
+            return jdbcTemplate.update("DELETE FROM documents WHERE id = ANY(CAST(? AS bigint[]))", (Object) ids);
+        });
+    }
+
+    @Test
+    @DisplayName("Утверждение в режиме saga пишет outbox, реестр заполняется ретранслятором")
+    void testApproveThroughOutbox() {
+        List<Long> ids = submittedDocuments(3);
+        documentService.approveDocuments(new BulkOperationRequest(List.of(ids.get(0)), "arapov", null));
+        documentService.approveDocuments(new BulkOperationRequest(ids.subList(1, 3), "arapov", null));
+
+        assertTrue(ids.stream().allMatch(id -> status(id) == DocumentStatus.APPROVED));
+        assertEquals(List.of(), registryRepository.findRegisteredDocumentIds(ids));
+        assertEquals(3, outboxSize(ids));
+
+        approvalOutboxRelay.relay();
+
+        assertEquals(3, registryRepository.findRegisteredDocumentIds(ids).size());
+        assertEquals(0, outboxSize(ids));
+    }
+
+    @Test
+    @DisplayName("Компенсируется только явный отказ реестра, сбой приемника откладывает запись")
+    void testCompensation() {
+        List<Long> ids = submittedDocuments(3);
+        documentService.approveDocuments(new BulkOperationRequest(ids.subList(0, 2), "arapov", null));
+        registrySink.rejected.add(ids.get(0));
+
+        documentService.getDocumentView(ids.get(0));
+        assertNull(documentResponseCache.get(ids.get(0)), "APPROVED в режиме saga еще может откатиться");
+
+        approvalOutboxRelay.relay();
+
+        assertEquals(DocumentStatus.REGISTRY_REJECTED, status(ids.get(0)));
+        assertEquals(DocumentStatus.REGISTRY_REJECTED, documentService.getDocumentView(ids.get(0)).status());
+        assertNotNull(documentResponseCache.get(ids.get(0)));
+        assertEquals(DocumentAction.REVERT, historyRepository.findLatest(ids.get(0), Limit.of(1)).getFirst().getAction());
+        assertEquals(DocumentStatus.APPROVED, status(ids.get(1)));
+        assertEquals(List.of(ids.get(1)), registryRepository.findRegisteredDocumentIds(ids));
+
+        documentService.approveDocuments(new BulkOperationRequest(List.of(ids.get(2)), "arapov", null));
+        registrySink.failing = true;
+
+        approvalOutboxRelay.relayBatch();
+        assertEquals(DocumentStatus.APPROVED, status(ids.get(2)));
+        assertEquals(1, attempts(ids.get(2)));
+
+        approvalOutboxRelay.relayBatch();
+        assertEquals(1, attempts(ids.get(2)), "Отложенная запись забрана до next_attempt_at");
+
+        for (int attempt = 2; attempt <= 4; attempt++) {
+            makeDue(ids);
+            approvalOutboxRelay.relayBatch();
+            assertEquals(attempt, attempts(ids.get(2)));
+        }
+        assertEquals(DocumentStatus.APPROVED, status(ids.get(2)));
+
+        registrySink.failing = false;
+        makeDue(ids);
+        approvalOutboxRelay.relay();
+
+        assertEquals(DocumentStatus.APPROVED, status(ids.get(2)));
+        assertEquals(List.of(ids.get(1), ids.get(2)), registryRepository.findRegisteredDocumentIds(ids).stream().sorted().toList());
+        assertEquals(0, outboxSize(ids));
+    }
+
+    @Test
+    @DisplayName("Сбой на одной записи не задерживает остальные записи пакета")
+    void testFailingEntryIsolated() {
+        List<Long> ids = submittedDocuments(4);
+        documentService.approveDocuments(new BulkOperationRequest(ids, "arapov", null));
+        registrySink.poisoned.add(ids.get(1));
+
+        approvalOutboxRelay.relayBatch();
+
+        assertEquals(List.of(ids.get(0), ids.get(2), ids.get(3)),
+                registryRepository.findRegisteredDocumentIds(ids).stream().sorted().toList());
+        assertEquals(1, outboxSize(ids));
+        assertEquals(1, attempts(ids.get(1)));
+        assertTrue(ids.stream().allMatch(id -> status(id) == DocumentStatus.APPROVED));
+    }
+
+    @Test
+    @DisplayName("При недоступном реестре остаток пакета откладывается без вызовов по каждой записи")
+    void testRegistryOutageDefersBatch() {
+        List<Long> ids = submittedDocuments(6);
+        documentService.approveDocuments(new BulkOperationRequest(ids, "arapov", null));
+        registrySink.failing = true;
+        registrySink.calls.set(0);
+
+        approvalOutboxRelay.relay();
+
+        assertEquals(4, registrySink.calls.get());
+        assertTrue(ids.stream().allMatch(id -> attempts(id) == 1));
+        assertTrue(ids.stream().allMatch(id -> status(id) == DocumentStatus.APPROVED));
+    }
+
+    @Nested
+    @TestPropertySource(properties = "worker.enabled=true")
+    @DirtiesContext
+    class WithWorker {
+
+        @Autowired
+        private DocumentService documentService;
+
+        @Autowired
+        private DocumentRepository documentRepository;
+
+        @Autowired
+        private ApprovalOutboxRelay approvalOutboxRelay;
+
+        @Autowired
+        private ScriptedRegistrySink registrySink;
+
+        @Autowired
+        private DocumentWorker documentWorker;
+
+        @Autowired
+        private StressTestService stressTestService;
+
+        @Test
+        @DisplayName("Отклоненный реестром документ не утверждается воркером повторно")
+        void testRejectedDocumentLeavesQueue() throws InterruptedException {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                ids.add(documentService.createDocument(new DocumentRequest("Автор", "Документ " + i, "Инициатор")).id());
+            }
+            documentIds.addAll(ids);
+            registrySink.rejected.add(ids.get(0));
+
+            awaitStatus(ids, DocumentStatus.APPROVED);
+            approvalOutboxRelay.relay();
+
+            assertEquals(DocumentStatus.REGISTRY_REJECTED, currentStatus(ids.get(0)));
+            assertEquals(DocumentStatus.APPROVED, currentStatus(ids.get(1)));
+
+            documentWorker.wakeAll();
+            Thread.sleep(1500);
+            approvalOutboxRelay.relay();
+
+            assertEquals(DocumentStatus.REGISTRY_REJECTED, currentStatus(ids.get(0)));
+            assertEquals(1, actionCount(ids.get(0), DocumentAction.APPROVE));
+            assertEquals(1, actionCount(ids.get(0), DocumentAction.REVERT));
+            assertEquals(0, outboxSize(ids));
+        }
+
+        @Test
+        @DisplayName("Нагрузочный прогон при запущенном воркере видит только свои переходы")
+        void testStressRunPausesWorker() {
+            StressTestReport report;
+            try {
+                report = stressTestService.run(StressTestRequest.builder()
+                        .documents(20)
+                        .threads(8)
+                        .attempts(10)
+                        .batchSize(5)
+                        .build());
+            } finally {
+                documentIds.addAll(jdbcTemplate.queryForList(
+                        "SELECT id FROM documents WHERE initiator = 'stress-test'", Long.class));
+            }
+
+            assertEquals(List.of(), report.invariantViolations());
+        }
+
+        private void awaitStatus(List<Long> ids, DocumentStatus expected) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 15000;
+            while (!ids.stream().allMatch(id -> currentStatus(id) == expected)) {
+                assertTrue(System.currentTimeMillis() < deadline, "Воркер не довел документы до " + expected);
+                Thread.sleep(100);
+            }
+        }
+
+        private DocumentStatus currentStatus(Long id) {
+            return documentRepository.findStatusById(id).orElseThrow();
+        }
+    }
+
+    private int actionCount(Long id, DocumentAction action) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM history WHERE document_id = ? AND action = ?",
+                Integer.class, id, action.name());
+        return count != null ? count : 0;
+    }
+
+    private List<Long> submittedDocuments(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            DocumentResponse created = documentService.createDocument(
+                    new DocumentRequest("Автор", "Документ " + i, "Инициатор"));
+            ids.add(created.id());
+        }
+        documentIds.addAll(ids);
+        documentService.submitDocuments(new BulkOperationRequest(ids, "arapov", null));
+        return ids;
+    }
+
+    private DocumentStatus status(Long id) {
+        return documentRepository.findStatusById(id).orElseThrow();
+    }
+
+    private int attempts(Long documentId) {
+        Integer attempts = jdbcTemplate.queryForObject(
+                "SELECT attempts FROM approval_outbox WHERE document_id = ?", Integer.class, documentId);
+        return attempts != null ? attempts : 0;
+    }
+
+    private void makeDue(List<Long> ids) {
+        jdbcTemplate.update("UPDATE approval_outbox SET next_attempt_at = LOCALTIMESTAMP " +
+                "WHERE document_id = ANY(CAST(? AS bigint[]))", (Object) ids.toArray(Long[]::new));
+    }
+
+    private int outboxSize(List<Long> ids) {
+        Integer size = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM approval_outbox WHERE document_id = ANY(CAST(? AS bigint[]))",
+                Integer.class, (Object) ids.toArray(Long[]::new));
+        return size != null ? size : 0;
+    }
+
+    @TestConfiguration
+    static class SinkConfiguration {
+
+        @Bean
+        ScriptedRegistrySink approvalRegistrySink(ApprovalRegistryRepository approvalRegistryRepository,
+                                                  NumberGenerator numberGenerator) {
+            return new ScriptedRegistrySink(new JdbcApprovalRegistrySink(approvalRegistryRepository, numberGenerator));
+        }
+    }
+
+    static class ScriptedRegistrySink implements ApprovalRegistrySink {
+
+        private final ApprovalRegistrySink delegate;
+
+        private final Set<Long> rejected = ConcurrentHashMap.newKeySet();
+
+        private final Set<Long> poisoned = ConcurrentHashMap.newKeySet();
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private volatile boolean failing;
+
+        ScriptedRegistrySink(ApprovalRegistrySink delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Set<Long> register(List<ApprovalOutboxEntry> entries) {
+            calls.incrementAndGet();
+            if (failing) {
+                throw new RegistryException("Реестр недоступен");
+            }
+            if (entries.stream().anyMatch(entry -> poisoned.contains(entry.getDocumentId()))) {
+                throw new RegistryException("Реестр не смог разобрать запись");
+            }
+            return delegate.register(entries.stream()
+                    .filter(entry -> !rejected.contains(entry.getDocumentId()))
+                    .toList());
+        }
+    }
+}
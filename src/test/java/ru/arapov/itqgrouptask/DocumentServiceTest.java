@@ -1,25 +1,104 @@
 package ru.arapov.itqgrouptask;
 
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.arapov.itqgrouptask.dto.BulkCreateRequest;
 import ru.arapov.itqgrouptask.dto.BulkOperationRequest;
+import ru.arapov.itqgrouptask.dto.CachedDocument;
+import ru.arapov.itqgrouptask.dto.CursorPage;
+import ru.arapov.itqgrouptask.dto.DocumentChange;
+import ru.arapov.itqgrouptask.dto.DocumentExportRow;
 import ru.arapov.itqgrouptask.dto.DocumentRequest;
 import ru.arapov.itqgrouptask.dto.DocumentResponse;
+import ru.arapov.itqgrouptask.dto.DocumentSearchFilter;
+import ru.arapov.itqgrouptask.dto.ExportFormat;
+import ru.arapov.itqgrouptask.dto.HistoryResponse;
+import ru.arapov.itqgrouptask.dto.ImportRejection;
+import ru.arapov.itqgrouptask.dto.ImportReport;
+import ru.arapov.itqgrouptask.dto.LargeBulkOperationRequest;
 import ru.arapov.itqgrouptask.dto.OperationResult;
+import ru.arapov.itqgrouptask.dto.QueueBatchOutcome;
+import ru.arapov.itqgrouptask.dto.SearchPage;
+import ru.arapov.itqgrouptask.dto.SearchTotal;
+import ru.arapov.itqgrouptask.dto.StressTestReport;
+import ru.arapov.itqgrouptask.dto.StressTestRequest;
+import ru.arapov.itqgrouptask.dto.TitleSearchMode;
+import ru.arapov.itqgrouptask.dto.TotalMode;
+import ru.arapov.itqgrouptask.model.ApprovalOutboxEntry;
+import ru.arapov.itqgrouptask.model.ApprovalRegistry;
 import ru.arapov.itqgrouptask.model.Document;
+import ru.arapov.itqgrouptask.model.DocumentAction;
 import ru.arapov.itqgrouptask.model.DocumentStatus;
+import ru.arapov.itqgrouptask.repository.ApprovalOutboxRepository;
 import ru.arapov.itqgrouptask.repository.ApprovalRegistryRepository;
 import ru.arapov.itqgrouptask.repository.DocumentRepository;
+import ru.arapov.itqgrouptask.repository.HistoryRepository;
+import ru.arapov.itqgrouptask.service.BulkChunkExecutor;
+import ru.arapov.itqgrouptask.service.DocumentAtomicService;
+import ru.arapov.itqgrouptask.service.DocumentChangeService;
+import ru.arapov.itqgrouptask.service.DocumentCountService;
+import ru.arapov.itqgrouptask.service.DocumentExportService;
+import ru.arapov.itqgrouptask.service.DocumentImportService;
+import ru.arapov.itqgrouptask.service.DocumentMetrics;
+import ru.arapov.itqgrouptask.service.DocumentQueueService;
+import ru.arapov.itqgrouptask.service.DocumentResponseCache;
 import ru.arapov.itqgrouptask.service.DocumentService;
+import ru.arapov.itqgrouptask.service.HistoryArchiveService;
+import ru.arapov.itqgrouptask.service.JdbcApprovalRegistrySink;
+import ru.arapov.itqgrouptask.service.StressTestService;
+import ru.arapov.itqgrouptask.utils.NumberGenerator;
+import ru.arapov.itqgrouptask.utils.StressOperation;
+import ru.arapov.itqgrouptask.utils.WorkerQueue;
+import tools.jackson.databind.json.JsonMapper;
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+@SpringBootTest(properties = {"worker.enabled=false", "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureMockMvc
 @Transactional
 public class DocumentServiceTest {
 
@@ -32,6 +111,69 @@ public class DocumentServiceTest {
     @Autowired
     private ApprovalRegistryRepository registryRepository;
 
+    @Autowired
+    private HistoryRepository historyRepository;
+
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
+
+    @Autowired
+    private StressTestService stressTestService;
+
+    @Autowired
+    private DocumentQueueService documentQueueService;
+
+    @Autowired
+    private DocumentAtomicService documentAtomicService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private DocumentExportService documentExportService;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DocumentImportService documentImportService;
+
+    @Autowired
+    private NumberGenerator numberGenerator;
+
+    @Autowired
+    private DocumentCountService documentCountService;
+
+    @Autowired
+    private DocumentMetrics documentMetrics;
+
+    @Autowired
+    private DocumentChangeService documentChangeService;
+
+    @Autowired
+    private DocumentResponseCache documentResponseCache;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApprovalOutboxRepository approvalOutboxRepository;
+
+    @Autowired
+    private JdbcApprovalRegistrySink jdbcApprovalRegistrySink;
+
     private final AtomicLong counter = new AtomicLong(1);
 
     @BeforeEach
@@ -146,6 +288,758 @@ public class DocumentServiceTest {
         assertEquals(DocumentStatus.APPROVED, updated.getStatus());
     }
 
+    @Test
+    @DisplayName("Пакетный submit убирает дубли и пишет историю")
+    void testBulkSubmitDeduplicatesAndWritesHistory() {
+        Document doc1 = createDoc(DocumentStatus.DRAFT);
+        Document doc2 = createDoc(DocumentStatus.DRAFT);
+
+        BulkOperationRequest request = new BulkOperationRequest(
+                List.of(doc2.getId(), doc1.getId(), doc2.getId()),
+                "arapov",
+                "test"
+        );
+
+        List<OperationResult> results = documentService.submitDocuments(request);
+
+        assertEquals(2, results.size());
+        assertEquals(doc2.getId(), results.get(0).id());
+        assertEquals(doc1.getId(), results.get(1).id());
+        assertTrue(results.stream().allMatch(r -> r.status() == OperationResult.ResultStatus.SUCCESS));
+
+        assertEquals(DocumentStatus.SUBMITTED, documentRepository.findById(doc1.getId()).get().getStatus());
+        assertEquals(2, historyRepository.findAll().stream()
+                .filter(h -> h.getAction() == DocumentAction.SUBMIT)
+                .count());
+    }
+
+    @Test
+    @DisplayName("Ошибка реестра в пакете не откатывает остальные документы")
+    void testBulkApproveRegistryErrorIsolated() {
+        Document doc1 = createDoc(DocumentStatus.SUBMITTED);
+        Document doc2 = createDoc(DocumentStatus.SUBMITTED);
+
+        ApprovalRegistry existing = new ApprovalRegistry();
+        existing.setDocument(doc2);
+        existing.setApprovedBy("arapov");
+        existing.setApprovedAt(LocalDateTime.now());
+        existing.setRegistryNumber("REG-TEST-" + counter.getAndIncrement());
+        registryRepository.save(existing);
+
+        BulkOperationRequest request = new BulkOperationRequest(
+                List.of(doc1.getId(), doc2.getId()),
+                "arapov",
+                "test"
+        );
+
+        List<OperationResult> results = documentService.approveDocuments(request);
+
+        assertEquals(OperationResult.ResultStatus.SUCCESS, results.get(0).status());
+        assertEquals(OperationResult.ResultStatus.REGISTRY_ERROR, results.get(1).status());
+        assertEquals(DocumentStatus.APPROVED, documentRepository.findById(doc1.getId()).get().getStatus());
+        assertEquals(DocumentStatus.SUBMITTED, documentRepository.findById(doc2.getId()).get().getStatus());
+    }
+
+    @Test
+    @DisplayName("Очередь утверждения вычерпывается пакетами, документ с ошибкой реестра не дает успеха")
+    void testQueueDrained() {
+        Document stuck = createDoc(DocumentStatus.SUBMITTED);
+        ApprovalRegistry existing = new ApprovalRegistry();
+        existing.setDocument(stuck);
+        existing.setApprovedBy("arapov");
+        existing.setApprovedAt(LocalDateTime.now());
+        existing.setRegistryNumber("REG-TEST-" + counter.getAndIncrement());
+        registryRepository.save(existing);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            ids.add(createDoc(DocumentStatus.SUBMITTED).getId());
+        }
+
+        List<QueueBatchOutcome> outcomes = new ArrayList<>();
+        QueueBatchOutcome outcome;
+        do {
+            outcome = documentQueueService.processBatch(WorkerQueue.APPROVE, 3);
+            outcomes.add(outcome);
+            assertTrue(outcomes.size() <= 10, "Очередь не вычерпана: " + outcomes);
+        } while (outcome.succeeded() > 0);
+
+        assertEquals(List.of(2, 2, 2, 1, 0), outcomes.stream().map(QueueBatchOutcome::succeeded).toList());
+        assertEquals(new QueueBatchOutcome(1, 0), outcome);
+        assertEquals(1.0, outcome.conflictRate());
+        assertTrue(ids.stream().allMatch(id ->
+                documentRepository.findStatusById(id).orElseThrow() == DocumentStatus.APPROVED));
+        assertEquals(DocumentStatus.SUBMITTED, documentRepository.findStatusById(stuck.getId()).orElseThrow());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Пакет из нескольких чанков: сбой одного чанка не затрагивает остальные, результаты в порядке запроса")
+    void testChunkFailureIsolated() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ids.add(createDoc(DocumentStatus.DRAFT).getId());
+        }
+        List<Long> failedChunk = ids.subList(3, 6);
+        List<Long> requested = new ArrayList<>(ids.reversed());
+        requested.add(ids.get(4));
+
+        BulkChunkExecutor executor = new BulkChunkExecutor(dataSource, 3, 2);
+        List<OperationResult> results = executor.execute(requested, chunk -> {
+            if (chunk.contains(ids.get(4))) {
+                throw new IllegalStateException("Сбой чанка");
+            }
+            return documentAtomicService.submitBatch(chunk, "arapov", "test");
+        });
+
+        assertEquals(ids.reversed(), results.stream().map(OperationResult::id).toList());
+        for (OperationResult result : results) {
+            boolean failed = failedChunk.contains(result.id());
+            assertEquals(failed ? OperationResult.ResultStatus.CONFLICT : OperationResult.ResultStatus.SUCCESS,
+                    result.status());
+            assertEquals(failed ? DocumentStatus.DRAFT : DocumentStatus.SUBMITTED,
+                    documentRepository.findStatusById(result.id()).orElseThrow());
+        }
+    }
+
+    @Test
+    @DisplayName("Пустой айди в большом пакете отклоняется валидацией")
+    void testLargeBulkRequestRejectsNullId() {
+        Set<ConstraintViolation<LargeBulkOperationRequest>> violations =
+                validator.validate(new LargeBulkOperationRequest(Arrays.asList(1L, null), "arapov", null));
+
+        assertEquals(List.of("Айди документа не может быть пустым"),
+                violations.stream().map(ConstraintViolation::getMessage).toList());
+    }
+
+    @Test
+    @DisplayName("Экспорт экранирует запятые, кавычки и переводы строк в CSV и NDJSON")
+    void testExportEscaping() throws Exception {
+        List<String> titles = List.of("Договор, \"срочный\"", "Строка 1\nСтрока 2", "Простой");
+        for (String title : titles) {
+            documentService.createDocument(new DocumentRequest("Отдел, \"А\"", title, "Инициатор"));
+        }
+        DocumentSearchFilter filter = new DocumentSearchFilter(null, "Отдел, \"А\"", null, null);
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        assertEquals(3, documentExportService.export(filter, ExportFormat.CSV, csv));
+        String csvText = csv.toString(StandardCharsets.UTF_8);
+        assertTrue(csvText.startsWith("id,documentNumber,author,title,status,initiator,createdAt,updatedAt\n"));
+        assertTrue(csvText.contains(",\"Отдел, \"\"А\"\"\",\"Договор, \"\"срочный\"\"\",DRAFT,"), csvText);
+        assertTrue(csvText.contains(",\"Строка 1\nСтрока 2\",DRAFT,"), csvText);
+        assertTrue(csvText.contains(",Простой,DRAFT,"), csvText);
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        assertEquals(3, documentExportService.export(filter, ExportFormat.NDJSON, ndjson));
+        List<String> lines = ndjson.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, lines.size());
+        List<String> exportedTitles = new ArrayList<>();
+        for (String line : lines) {
+            DocumentExportRow row = jsonMapper.readValue(line, DocumentExportRow.class);
+            assertEquals("Отдел, \"А\"", row.author());
+            exportedTitles.add(row.title());
+        }
+        assertEquals(titles.stream().sorted().toList(), exportedTitles.stream().sorted().toList());
+    }
+
+    @Test
+    @DisplayName("Таймаут асинхронного ответа увеличен только для экспорта")
+    void testExportAsyncTimeout() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/documents/export").param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1_800_000, result.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Поиск по курсору проходит все документы без повторов")
+    void testScrollDocumentsByCursor() {
+        for (int i = 0; i < 5; i++) {
+            createDoc(DocumentStatus.DRAFT);
+        }
+        DocumentSearchFilter filter = new DocumentSearchFilter(DocumentStatus.DRAFT, "Arapov", null, null);
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<DocumentResponse> page = documentService.scrollDocuments(filter, cursor, 2, pages == 0,
+                    TotalMode.EXACT);
+            if (pages == 0) {
+                assertEquals(5L, page.totalElements());
+            } else {
+                assertNull(page.totalElements());
+            }
+            page.content().forEach(d -> seen.add(d.id()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, seen.size());
+        assertEquals(5, seen.stream().distinct().count());
+    }
+
+    @Test
+    @DisplayName("Поиск пагинирует в БД, а не в памяти")
+    void testSearchPaginatesInDatabase() {
+        for (int i = 0; i < 5; i++) {
+            Document doc = createDoc(DocumentStatus.DRAFT);
+            documentService.submitDocuments(new BulkOperationRequest(List.of(doc.getId()), "arapov", "test"));
+        }
+
+        assertThrows(RuntimeException.class, () -> entityManager
+                .createQuery("SELECT DISTINCT d FROM Document d LEFT JOIN FETCH d.history", Document.class)
+                .setMaxResults(2)
+                .getResultList());
+
+        Page<DocumentResponse> page = documentService.searchDocuments(
+                new DocumentSearchFilter(DocumentStatus.SUBMITTED, "Arapov", null, null),
+                PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "createdAt")),
+                TotalMode.EXACT).page();
+
+        assertEquals(5, page.getTotalElements());
+        assertEquals(3, page.getTotalPages());
+        assertEquals(2, page.getContent().size());
+        assertTrue(page.getContent().stream().allMatch(d -> d.history().size() == 1));
+    }
+
+    @Test
+    @DisplayName("Количество в поиске берется из кэша или из оценки планировщика")
+    void testSearchTotalKinds() {
+        createDoc(DocumentStatus.DRAFT);
+        createDoc(DocumentStatus.DRAFT);
+        DocumentSearchFilter filter = new DocumentSearchFilter(DocumentStatus.DRAFT, "Arapov",
+                LocalDateTime.now().minusDays(1), null);
+        PageRequest pageable = PageRequest.of(0, 10);
+
+        SearchPage<DocumentResponse> first = documentService.searchDocuments(filter, pageable, TotalMode.EXACT);
+        SearchPage<DocumentResponse> second = documentService.searchDocuments(filter, pageable, TotalMode.EXACT);
+        SearchPage<DocumentResponse> approximate = documentService.searchDocuments(filter, pageable,
+                TotalMode.APPROXIMATE);
+
+        assertEquals(SearchTotal.Kind.EXACT, first.totalKind());
+        assertEquals(2, first.page().getTotalElements());
+        assertEquals(SearchTotal.Kind.CACHED, second.totalKind());
+        assertEquals(2, second.page().getTotalElements());
+        assertEquals(SearchTotal.Kind.APPROXIMATE, approximate.totalKind());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Переход статуса сбрасывает в кэше количеств только фильтры по затронутым статусам")
+    void testCountCacheEvictsAffectedStatuses() {
+        String author = "Кэш-" + counter.getAndIncrement();
+        Long id = documentService.createDocument(new DocumentRequest(author, "Документ", "arapov")).id();
+        documentService.createDocument(new DocumentRequest(author, "Документ", "arapov"));
+        DocumentSearchFilter any = new DocumentSearchFilter(null, author, null, null);
+        DocumentSearchFilter draft = new DocumentSearchFilter(DocumentStatus.DRAFT, author, null, null);
+        DocumentSearchFilter submitted = new DocumentSearchFilter(DocumentStatus.SUBMITTED, author, null, null);
+        DocumentSearchFilter approved = new DocumentSearchFilter(DocumentStatus.APPROVED, author, null, null);
+        List.of(any, draft, submitted, approved).forEach(filter -> documentCountService.count(filter, TotalMode.EXACT));
+
+        documentAtomicService.submitBatch(List.of(id), "arapov", null);
+
+        assertEquals(new SearchTotal(2, SearchTotal.Kind.CACHED), documentCountService.count(any, TotalMode.EXACT));
+        assertEquals(new SearchTotal(0, SearchTotal.Kind.CACHED), documentCountService.count(approved, TotalMode.EXACT));
+        assertEquals(new SearchTotal(1, SearchTotal.Kind.EXACT), documentCountService.count(draft, TotalMode.EXACT));
+        assertEquals(new SearchTotal(1, SearchTotal.Kind.EXACT), documentCountService.count(submitted, TotalMode.EXACT));
+
+        documentService.createDocument(new DocumentRequest(author, "Документ", "arapov"));
+
+        assertEquals(new SearchTotal(3, SearchTotal.Kind.EXACT), documentCountService.count(any, TotalMode.EXACT));
+        assertEquals(new SearchTotal(1, SearchTotal.Kind.CACHED), documentCountService.count(submitted, TotalMode.EXACT));
+    }
+
+    @Test
+    @DisplayName("Утвержденный документ отдается из кэша готовым JSON")
+    void testApprovedDocumentServedFromCache() {
+        Document doc = createDoc(DocumentStatus.APPROVED);
+
+        CachedDocument first = documentService.getDocumentView(doc.getId());
+        CachedDocument second = documentService.getDocumentView(doc.getId());
+
+        assertSame(first, second);
+        assertNotNull(first.etag());
+        assertTrue(new String(first.json(), StandardCharsets.UTF_8)
+                .contains("\"status\":\"APPROVED\""));
+    }
+
+    @Test
+    @DisplayName("Документ в промежуточном статусе не кэшируется, но отдается с ETag")
+    void testSubmittedDocumentNotCached() {
+        Document doc = createDoc(DocumentStatus.SUBMITTED);
+
+        CachedDocument first = documentService.getDocumentView(doc.getId());
+        CachedDocument second = documentService.getDocumentView(doc.getId());
+
+        assertNotSame(first, second);
+        assertEquals(first.etag(), second.etag());
+        assertNull(documentResponseCache.get(doc.getId()));
+    }
+
+    @Test
+    @DisplayName("Пакетное создание сохраняет документы и историю одной транзакцией")
+    void testBulkCreateDocuments() {
+        List<DocumentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            requests.add(new DocumentRequest("Автор", "Документ " + i, "Инициатор"));
+        }
+
+        List<DocumentResponse> created = documentService.createDocuments(new BulkCreateRequest(requests));
+
+        assertEquals(1200, created.size());
+        assertEquals(1200, created.stream().map(DocumentResponse::documentNumber).distinct().count());
+        assertEquals(1200, documentRepository.count());
+        assertEquals(1200, historyRepository.count());
+        assertEquals("Документ 0", created.getFirst().title());
+        assertEquals(1, created.getFirst().history().size());
+    }
+
+    @Test
+    @DisplayName("Номера реестра в пакете идут подряд, номера документов уникальны")
+    void testNumbersAllocatedWithoutGaps() {
+        Document doc1 = createDoc(DocumentStatus.SUBMITTED);
+        Document doc2 = createDoc(DocumentStatus.SUBMITTED);
+        Document doc3 = createDoc(DocumentStatus.SUBMITTED);
+
+        documentService.approveDocuments(new BulkOperationRequest(
+                List.of(doc1.getId(), doc2.getId(), doc3.getId()), "arapov", "test"));
+
+        List<Long> registryValues = registryRepository.findAll().stream()
+                .map(ApprovalRegistry::getRegistryNumber)
+                .map(number -> Long.parseLong(number.substring(number.lastIndexOf('-') + 1)))
+                .sorted()
+                .toList();
+        assertEquals(3, registryValues.size());
+        assertEquals(registryValues.getFirst() + 2, registryValues.getLast());
+
+        List<String> documentNumbers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            documentNumbers.add(documentService.createDocument(
+                    new DocumentRequest("Автор", "Документ " + i, "Инициатор")).documentNumber());
+        }
+        assertEquals(5, documentNumbers.stream().distinct().count());
+        assertTrue(documentNumbers.getFirst().matches("DOC-\\d{8}-\\d{10}"));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Номер реестра резервируется после вставки: параллельно зарегистрированный документ не оставляет пропуска")
+    void testRegistryNumbersReservedAfterInsert() throws Exception {
+        Document doc1 = createDoc(DocumentStatus.APPROVED);
+        Document doc2 = createDoc(DocumentStatus.APPROVED);
+        List<ApprovalOutboxEntry> entries = transactionTemplate.execute(status -> {
+            approvalOutboxRepository.insertBatch(new Long[]{doc1.getId(), doc2.getId()}, "arapov", LocalDateTime.now());
+            return approvalOutboxRepository.findAll();
+        });
+
+        try (Connection other = dataSource.getConnection()) {
+            other.setAutoCommit(false);
+            try (Statement statement = other.createStatement()) {
+                statement.executeUpdate("INSERT INTO approval_registry (document_id, approved_by, approved_at, " +
+                        "registry_number) VALUES (" + doc2.getId() + ", 'other', now(), 'REG-OTHER-" +
+                        counter.getAndIncrement() + "')");
+            }
+            long before = registryCounter();
+
+            Thread committer = Thread.ofVirtual().start(() -> {
+                try {
+                    while (jdbcTemplate.queryForObject("SELECT count(*) FROM pg_stat_activity " +
+                            "WHERE datname = current_database() AND wait_event_type = 'Lock' " +
+                            "AND query LIKE 'INSERT INTO approval_registry%'",
+                            Integer.class) == 0) {
+                        Thread.sleep(10);
+                    }
+                    other.commit();
+                } catch (SQLException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Set<Long> accepted = transactionTemplate.execute(status -> jdbcApprovalRegistrySink.register(entries));
+            committer.join();
+
+            assertEquals(Set.of(doc1.getId()), accepted);
+            assertEquals(before + 1, registryCounter());
+            String number = jdbcTemplate.queryForObject(
+                    "SELECT registry_number FROM approval_registry WHERE document_id = ?", String.class, doc1.getId());
+            assertTrue(number.endsWith("-" + String.format("%010d", before + 1)), number);
+        }
+    }
+
+    private long registryCounter() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM registry_number_counter WHERE id = 1", Long.class);
+    }
+
+    @Test
+    @DisplayName("Условный переход увеличивает версию, повторный переход отклоняется без изменений")
+    void testSingleTransitionIsConditional() {
+        Document doc = createDoc(DocumentStatus.DRAFT);
+        BulkOperationRequest request = new BulkOperationRequest(List.of(doc.getId()), "arapov", "test");
+
+        assertEquals(OperationResult.ResultStatus.SUCCESS,
+                documentService.submitDocuments(request).getFirst().status());
+        assertEquals(OperationResult.ResultStatus.CONFLICT,
+                documentService.submitDocuments(request).getFirst().status());
+        assertEquals(OperationResult.ResultStatus.NOT_FOUND,
+                documentService.submitDocuments(new BulkOperationRequest(List.of(9999L), "arapov", "test"))
+                        .getFirst().status());
+
+        Document updated = documentRepository.findById(doc.getId()).get();
+        assertEquals(DocumentStatus.SUBMITTED, updated.getStatus());
+        assertEquals(1L, updated.getVersion());
+        assertEquals(1, historyRepository.count());
+    }
+
+    @Test
+    @DisplayName("Пакетные submit и approve пишут статусы и историю постоянным числом запросов")
+    void testBatchTransitionStatementCount() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            ids.add(createDoc(DocumentStatus.DRAFT).getId());
+        }
+        documentRepository.flush();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        documentService.submitDocuments(new BulkOperationRequest(ids, "arapov", "test"));
+        long submitStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        documentService.approveDocuments(new BulkOperationRequest(ids, "arapov", "test"));
+        long approveStatements = statistics.getPrepareStatementCount();
+
+        assertEquals(2, submitStatements);
+        assertEquals(6, approveStatements);
+        assertEquals(600, historyRepository.count());
+        assertEquals(300, registryRepository.count());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("История читается и из горячих секций, и из архива, строка вне секций отклоняется")
+    void testHistoryReadAcrossArchivedPartition() {
+        DocumentResponse created = documentService.createDocument(
+                new DocumentRequest("Автор", "Документ", "Инициатор"));
+        YearMonth archivedMonth = YearMonth.now().minusYears(2);
+        historyArchiveService.ensurePartitions(archivedMonth, archivedMonth);
+
+        String insert = "INSERT INTO history (document_id, initiator, timestamp, action, comment) " +
+                "VALUES (?, 'arapov', ?, 'SUBMIT', 'архив')";
+        jdbcTemplate.update(insert, created.id(), archivedMonth.atDay(15).atStartOfDay());
+
+        assertEquals(1, historyArchiveService.archiveBefore(archivedMonth.plusMonths(1)));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_class WHERE relname = 'history_p' || ?", Integer.class,
+                archivedMonth.format(DateTimeFormatter.ofPattern("yyyyMM"))));
+
+        DocumentResponse loaded = documentService.getDocumentWithHistory(created.id());
+        assertEquals(2, loaded.history().size());
+        assertEquals(DocumentAction.CREATE, loaded.history().getFirst().action());
+        assertEquals("архив", loaded.history().getLast().comment());
+
+        assertThrows(DataAccessException.class, () -> jdbcTemplate.update(insert, created.id(),
+                YearMonth.now().plusYears(10).atDay(1).atStartOfDay()));
+    }
+
+    @Test
+    @DisplayName("История постранично по курсору и последние N записей в документе")
+    void testHistoryPagingAndLatestEntries() {
+        DocumentResponse created = documentService.createDocument(
+                new DocumentRequest("Автор", "Документ", "Инициатор"));
+        BulkOperationRequest request = new BulkOperationRequest(List.of(created.id()), "arapov", "test");
+        documentService.submitDocuments(request);
+        documentService.approveDocuments(request);
+
+        CursorPage<HistoryResponse> first = documentService.getDocumentHistory(created.id(), null, 2);
+        assertEquals(2, first.size());
+        assertEquals(DocumentAction.CREATE, first.content().getFirst().action());
+        assertNotNull(first.nextCursor());
+
+        CursorPage<HistoryResponse> second = documentService.getDocumentHistory(created.id(), first.nextCursor(), 2);
+        assertEquals(1, second.size());
+        assertEquals(DocumentAction.APPROVE, second.content().getFirst().action());
+        assertNull(second.nextCursor());
+
+        DocumentResponse latest = documentService.getDocumentWithHistory(created.id(), 1);
+        assertEquals(1, latest.history().size());
+        assertEquals(DocumentAction.APPROVE, latest.history().getFirst().action());
+    }
+
+    @Test
+    @DisplayName("Импорт CSV загружает валидные строки и отклоняет невалидные")
+    void testCsvImport() {
+        String csv = """
+                author,title,initiator,createdAt
+                Арапов,"Отчет, квартал \"\"1\"\"",arapov,2024-01-15T10:00:00
+                А,Короткий автор,arapov,
+                Иванов,Без даты,ivanov,
+                Петров,Плохая дата,petrov,вчера
+                Сидоров,,%s,
+                Кузнецов,Нуль\0в заголовке,kuznetsov,
+                Орлов,Далекое будущее,orlov,+10000-01-01T00:00:00
+                """.formatted("и".repeat(256));
+
+        ImportReport report = documentImportService.importDocuments(ExportFormat.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(7, report.totalRows());
+        assertEquals(2, report.importedRows());
+        assertEquals(5, report.rejectedRows());
+        assertEquals(List.of(2L, 4L, 5L, 6L, 7L), report.rejections().stream().map(r -> r.row()).toList());
+        assertEquals(List.of("Имя автора должно быть от 2 до 25 символов",
+                        "Некорректная дата создания: вчера",
+                        "Заголовок должен содержать от 1 до 255 символов; Поле заголовка пропущено; "
+                                + "Инициатор не может быть длиннее 255 символов",
+                        "Текстовые поля не могут содержать символ NUL",
+                        "Дата создания вне допустимого диапазона: +10000-01-01T00:00:00"),
+                report.rejections().stream().map(r -> r.reason()).toList());
+
+        List<Document> documents = documentRepository.findAll(Sort.by("id"));
+        assertEquals(2, documents.size());
+        assertEquals("Отчет, квартал \"1\"", documents.getFirst().getTitle());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 0), documents.getFirst().getCreatedAt());
+        assertTrue(documents.stream().allMatch(d -> d.getStatus() == DocumentStatus.DRAFT));
+
+        DocumentResponse loaded = documentService.getDocumentWithHistory(documents.getLast().getId());
+        assertEquals(1, loaded.history().size());
+        assertEquals(DocumentAction.CREATE, loaded.history().getFirst().action());
+    }
+
+    @Test
+    @DisplayName("Импорт NDJSON отклоняет слишком длинную строку и читает следующие")
+    void testNdjsonImportRejectsLongLine() {
+        String ndjson = "{\"author\":\"Арапов\",\"title\":\"" + "x".repeat(100_000) + "\",\"initiator\":\"arapov\"}\n"
+                + "{\"author\":\"Арапов\",\"title\":\"Короткий\",\"initiator\":\"arapov\"}\n";
+
+        ImportReport report = documentImportService.importDocuments(ExportFormat.NDJSON,
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, report.totalRows());
+        assertEquals(1, report.importedRows());
+        assertEquals(List.of(new ImportRejection(1, "Строка длиннее 65536 символов")), report.rejections());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Импорт коммитит каждый пакет отдельно, отказ базы откатывает только свой пакет")
+    void testImportCommitsPerChunk() {
+        DocumentImportService chunkedImport = new DocumentImportService(jdbcTemplate, transactionTemplate, validator,
+                jsonMapper, numberGenerator, documentCountService, documentMetrics, 2, 100);
+        String ndjson = """
+                {"author":"Арапов","title":"Первый","initiator":"arapov"}
+                {"author":"Арапов","title":"Второй","initiator":"arapov"}
+                {"author":"Арапов","title":"Сбой","initiator":"arapov"}
+                {"author":"Арапов","title":"Четвертый","initiator":"arapov"}
+                {"author":"Арапов","title":"Пятый","initiator":"arapov"}
+                """;
+
+        jdbcTemplate.execute("CREATE FUNCTION reject_import_row() RETURNS trigger LANGUAGE plpgsql AS " +
+                "$$ BEGIN RAISE EXCEPTION 'строка отклонена'; END $$");
+        jdbcTemplate.execute("CREATE TRIGGER reject_import_row BEFORE INSERT ON documents FOR EACH ROW " +
+                "WHEN (NEW.title = 'Сбой') EXECUTE FUNCTION reject_import_row()");
+        ImportReport report;
+        try {
+            report = chunkedImport.importDocuments(ExportFormat.NDJSON,
+                    new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+        } finally {
+            jdbcTemplate.execute("DROP TRIGGER reject_import_row ON documents");
+            jdbcTemplate.execute("DROP FUNCTION reject_import_row()");
+        }
+
+        assertEquals(5, report.totalRows());
+        assertEquals(3, report.importedRows());
+        assertEquals(2, report.rejectedRows());
+        assertEquals(3L, report.rejections().getFirst().row());
+        assertTrue(report.rejections().getFirst().reason().contains("строка отклонена"));
+        assertEquals(List.of("Первый", "Второй", "Пятый"), jdbcTemplate.queryForList(
+                "SELECT title FROM documents WHERE initiator = 'arapov' ORDER BY id", String.class));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT count(DISTINCT xmin::text) FROM documents WHERE initiator = 'arapov'", Integer.class));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Лента изменений отдает переходы статусов по курсору и ждет новые записи")
+    void testChangeFeed() {
+        DocumentResponse first = documentService.createDocument(new DocumentRequest("Автор", "Первый", "Инициатор"));
+        DocumentResponse second = documentService.createDocument(new DocumentRequest("Автор", "Второй", "Инициатор"));
+        documentService.submitDocuments(new BulkOperationRequest(List.of(first.id(), second.id()), "arapov", null));
+        documentService.approveDocuments(new BulkOperationRequest(List.of(first.id()), "arapov", null));
+
+        CursorPage<DocumentChange> page = documentChangeService.changes(null, 2, 0);
+        assertEquals(2, page.size());
+        assertTrue(page.content().stream().allMatch(c -> c.status() == DocumentStatus.SUBMITTED));
+
+        CursorPage<DocumentChange> next = documentChangeService.changes(page.nextCursor(), 2, 0);
+        assertEquals(1, next.size());
+        assertEquals(first.id(), next.content().getFirst().documentId());
+        assertEquals(first.documentNumber(), next.content().getFirst().documentNumber());
+        assertEquals(DocumentStatus.APPROVED, next.content().getFirst().status());
+
+        long startTime = System.currentTimeMillis();
+        CursorPage<DocumentChange> empty = documentChangeService.changes(next.nextCursor(), 2, 200);
+        assertEquals(0, empty.size());
+        assertEquals(next.nextCursor(), empty.nextCursor());
+        assertTrue(System.currentTimeMillis() - startTime >= 200);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Долгий опрос ленты изменений ждет асинхронно, не занимая поток запроса")
+    void testChangeFeedLongPollAsync() throws Exception {
+        CursorPage<DocumentChange> tail = documentChangeService.changes(null, DocumentChangeService.MAX_PAGE, 0);
+        while (tail.size() > 0) {
+            tail = documentChangeService.changes(tail.nextCursor(), DocumentChangeService.MAX_PAGE, 0);
+        }
+        String cursor = tail.nextCursor();
+
+        MvcResult result = mockMvc.perform(get("/api/documents/changes")
+                        .param("cursor", cursor)
+                        .param("wait", "200"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(90_000, result.getRequest().getAsyncContext().getTimeout());
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(0))
+                .andExpect(jsonPath("$.nextCursor").value(cursor));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Лента изменений не теряет запись транзакции, закоммиченной позже записи с большим id")
+    void testChangeFeedOutOfOrderCommit() throws SQLException {
+        DocumentResponse doc = documentService.createDocument(new DocumentRequest("Автор", "Документ", "Инициатор"));
+        String insert = "INSERT INTO history (document_id, initiator, timestamp, action, comment) " +
+                "VALUES (" + doc.id() + ", ?, now(), 'SUBMIT', null) RETURNING id";
+
+        try (Connection slow = dataSource.getConnection(); Connection fast = dataSource.getConnection()) {
+            slow.setAutoCommit(false);
+            fast.setAutoCommit(false);
+            long slowId = insertHistory(slow, insert, "slow");
+            long fastId = insertHistory(fast, insert, "fast");
+            fast.commit();
+            assertTrue(slowId < fastId);
+
+            CursorPage<DocumentChange> page = documentChangeService.changes(null, 10, 0);
+            assertEquals(0, page.size());
+
+            slow.commit();
+
+            CursorPage<DocumentChange> next = documentChangeService.changes(page.nextCursor(), 10, 0);
+            assertEquals(List.of("slow", "fast"), next.content().stream().map(DocumentChange::initiator).toList());
+            assertEquals(0, documentChangeService.changes(next.nextCursor(), 10, 0).size());
+        }
+    }
+
+    private static long insertHistory(Connection connection, String sql, String initiator) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, initiator);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Поиск по заголовку: полнотекстовый со стеммингом и нечеткий, с курсором по рангу")
+    void testTitleSearch() {
+        for (String title : List.of("Договор поставки оборудования", "Акт поставки", "Поставка поставки",
+                "Счет на оплату", "Supply contract", "Service contract", "Invoice")) {
+            documentService.createDocument(new DocumentRequest("Автор", title, "Инициатор"));
+        }
+
+        CursorPage<DocumentResponse> first = documentService.searchByTitle("поставка", TitleSearchMode.FULLTEXT, null, 2);
+        assertEquals(2, first.size());
+        assertEquals("Поставка поставки", first.content().getFirst().title());
+        assertNotNull(first.nextCursor());
+
+        CursorPage<DocumentResponse> second = documentService.searchByTitle(
+                "поставка", TitleSearchMode.FULLTEXT, first.nextCursor(), 2);
+        assertEquals(1, second.size());
+        assertNull(second.nextCursor());
+        assertTrue(first.content().stream().noneMatch(d -> d.id().equals(second.content().getFirst().id())));
+
+        CursorPage<DocumentResponse> fuzzy = documentService.searchByTitle("contrct", TitleSearchMode.FUZZY, null, 10);
+        assertEquals(List.of("Service contract", "Supply contract"),
+                fuzzy.content().stream().map(DocumentResponse::title).sorted().toList());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Нагрузочный прогон на горячем ключе не нарушает инварианты")
+    void testStressRunKeepsInvariants() {
+        StressTestReport report = stressTestService.run(StressTestRequest.builder()
+                .documents(4)
+                .threads(16)
+                .attempts(5)
+                .hotKeyRatio(0.5)
+                .batchSize(3)
+                .build());
+
+        assertEquals(80, report.totalOperations());
+        assertTrue(report.totalTime() > 0);
+        assertEquals(List.of(), report.invariantViolations());
+        assertTrue(report.outcomes().get("approve") == null
+                || report.outcomes().get("approve").getOrDefault("SUCCESS", 0L) <= 4);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Вес null в смеси операций считается нулевым")
+    void testStressRunNullMixWeight() {
+        Map<StressOperation, Integer> mix = new HashMap<>();
+        mix.put(StressOperation.READ, 1);
+        mix.put(StressOperation.SUBMIT, null);
+
+        StressTestReport report = stressTestService.run(StressTestRequest.builder()
+                .documents(2)
+                .threads(2)
+                .attempts(3)
+                .mix(mix)
+                .build());
+
+        assertEquals(6, report.totalOperations());
+        assertEquals(0, report.mix().get("submit"));
+        assertEquals(Set.of("read"), report.operations().keySet());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Смена статуса документа после коммита шлет NOTIFY с новым статусом")
+    void testQueueNotifications() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN document_queue");
+            try {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                DocumentResponse created = documentService.createDocument(
+                        new DocumentRequest("Автор", "Документ", "Инициатор"));
+                assertEquals(List.of("DRAFT"), notifications(pgConnection));
+
+                documentService.submitDocuments(new BulkOperationRequest(List.of(created.id()), "arapov", null));
+                assertEquals(List.of("SUBMITTED"), notifications(pgConnection));
+
+                documentService.approveDocuments(new BulkOperationRequest(List.of(created.id()), "arapov", null));
+                assertEquals(List.of("APPROVED"), notifications(pgConnection));
+            } finally {
+                statement.execute("UNLISTEN *");
+            }
+        }
+    }
+
+    private List<String> notifications(PGConnection connection) throws SQLException {
+        PGNotification[] notifications = connection.getNotifications(1000);
+        return notifications == null ? List.of() : Arrays.stream(notifications)
+                .map(PGNotification::getParameter)
+                .toList();
+    }
+
     private Document createDoc(DocumentStatus status) {
         Document doc = new Document();
         doc.setAuthor("Arapov");
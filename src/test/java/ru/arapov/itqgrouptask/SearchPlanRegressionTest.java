@@ -0,0 +1,287 @@
+package ru.arapov.itqgrouptask;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.transaction.annotation.Transactional;
+import ru.arapov.itqgrouptask.dto.DocumentSearchFilter;
+import ru.arapov.itqgrouptask.model.DocumentStatus;
+import ru.arapov.itqgrouptask.repository.DocumentRepository;
+import ru.arapov.itqgrouptask.utils.WorkerQueue;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Планы поиска документов на реалистичном объеме. Таблица plan_regression.documents заполняется
+ * generate_series с перекосом (80% APPROVED, авторы по лог-равномерному закону: у первого ~9% строк,
+ * у хвоста сотни), индексы копируются с public.documents, то есть проверяются ровно те, что создал Liquibase.
+ * Запрос берется тот, что сгенерировал Hibernate для метода репозитория, и выполняется через
+ * EXPLAIN (ANALYZE, BUFFERS) для всех 16 сочетаний фильтров на частых и редких значениях, а также для выборки
+ * пакета воркером и метрик очередей (глубина, возраст самого старого документа).
+ * Запуск: mvn -Pplan-regression test
+ */
+@Tag("plan")
+@SpringBootTest(properties = {"worker.enabled=false", "worker.listener-enabled=false",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "ru.arapov.itqgrouptask.SearchPlanRegressionTest$CapturingInspector"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Transactional
+@Slf4j
+public class SearchPlanRegressionTest {
+
+    private static final String SCHEMA = "plan_regression";
+
+    private static final LocalDateTime ANCHOR = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int WORKER_BATCH = 100;
+
+    private static final List<Sample> SAMPLES = List.of(
+            new Sample("частые", DocumentStatus.APPROVED, "author-1",
+                    ANCHOR.minusDays(365), ANCHOR, ANCHOR.minusDays(180)),
+            new Sample("редкие", DocumentStatus.DRAFT, "author-1500",
+                    ANCHOR.minusDays(100), ANCHOR.minusDays(93), ANCHOR.minusDays(96)));
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Value("${plan.rows:2000000}")
+    private int rows;
+
+    @Value("${plan.budget-ms:10}")
+    private double budgetMillis;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        jdbcTemplate.execute("CREATE TABLE " + SCHEMA + ".documents "
+                + "(LIKE public.documents INCLUDING DEFAULTS INCLUDING GENERATED)");
+
+        jdbcTemplate.execute(("SELECT setseed(0.25); "
+                + "INSERT INTO %s.documents "
+                + "(id, document_number, author, title, status, initiator, created_at, updated_at, version) "
+                + "SELECT g, 'DOC-PLAN-' || g, 'author-' || floor(exp(random() * ln(2000)))::int, 'Документ ' || g, "
+                + "CASE WHEN r < 0.80 THEN 'APPROVED' WHEN r < 0.95 THEN 'SUBMITTED' ELSE 'DRAFT' END, "
+                + "'Генератор', created_at, created_at, 0 "
+                + "FROM (SELECT g, random() AS r, timestamp '%s' - random() * interval '730 days' AS created_at "
+                + "FROM generate_series(1, %d) g) s").formatted(SCHEMA, ANCHOR, rows));
+
+        List<String> indexes = jdbcTemplate.queryForList("SELECT indexdef FROM pg_indexes "
+                + "WHERE schemaname = 'public' AND tablename = 'documents' AND indexdef NOT LIKE '%USING gin%'",
+                String.class);
+        indexes.forEach(index -> jdbcTemplate.execute(
+                index.replace(" ON public.documents ", " ON " + SCHEMA + ".documents ")));
+        jdbcTemplate.execute("VACUUM ANALYZE " + SCHEMA + ".documents");
+    }
+
+    @AfterAll
+    void drop() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    @ParameterizedTest(name = "{0} {1}")
+    @MethodSource("cases")
+    @DisplayName("Поиск с пагинацией (offset)")
+    void testSearchPagePlan(String values, String filters, DocumentSearchFilter filter, Sample sample) {
+        assertPlan("offset", values, filter, List.of(PAGE_SIZE), () -> documentRepository.searchDocumentIds(
+                filter.status(), filter.author(), filter.fromDate(), filter.toDate(),
+                PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "createdAt"))));
+    }
+
+    @ParameterizedTest(name = "{0} {1}")
+    @MethodSource("cases")
+    @DisplayName("Первая страница по курсору")
+    void testScrollFirstPlan(String values, String filters, DocumentSearchFilter filter, Sample sample) {
+        assertPlan("first", values, filter, List.of(PAGE_SIZE + 1), () -> documentRepository.searchDocumentsFirst(
+                filter.status(), filter.author(), filter.fromDate(), filter.toDate(), Limit.of(PAGE_SIZE + 1)));
+    }
+
+    @ParameterizedTest(name = "{0} {1}")
+    @MethodSource("cases")
+    @DisplayName("Следующая страница по курсору")
+    void testScrollAfterPlan(String values, String filters, DocumentSearchFilter filter, Sample sample) {
+        List<Object> tail = List.of(sample.cursor(), Long.MAX_VALUE, PAGE_SIZE + 1);
+        assertPlan("after", values, filter, tail, () -> documentRepository.searchDocumentsAfter(
+                filter.status(), filter.author(), filter.fromDate(), filter.toDate(),
+                sample.cursor(), Long.MAX_VALUE, Limit.of(PAGE_SIZE + 1)));
+    }
+
+    Stream<Arguments> cases() {
+        List<Arguments> cases = new ArrayList<>();
+        for (Sample sample : SAMPLES) {
+            for (int mask = 0; mask < 16; mask++) {
+                DocumentSearchFilter filter = new DocumentSearchFilter(
+                        (mask & 1) != 0 ? sample.status() : null,
+                        (mask & 2) != 0 ? sample.author() : null,
+                        (mask & 4) != 0 ? sample.fromDate() : null,
+                        (mask & 8) != 0 ? sample.toDate() : null);
+                cases.add(Arguments.of(sample.name(), describe(filter), filter, sample));
+            }
+        }
+        return cases.stream();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(WorkerQueue.class)
+    @DisplayName("Выборка пакета воркером")
+    void testWorkerBatchPlan(WorkerQueue queue) {
+        String status = queue.getSourceStatus().name();
+        assertQueuePlan("worker", queue, List.of(status, WORKER_BATCH), true,
+                () -> documentRepository.findAndLockQueue(status, WORKER_BATCH));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(WorkerQueue.class)
+    @DisplayName("Возраст самого старого документа в очереди")
+    void testQueueOldestPlan(WorkerQueue queue) {
+        assertQueuePlan("oldest", queue, List.of(queue.getSourceStatus().name()), true,
+                () -> documentRepository.findOldestCreatedAt(queue.getSourceStatus()));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(WorkerQueue.class)
+    @DisplayName("Глубина очереди")
+    void testQueueDepthPlan(WorkerQueue queue) {
+        // Точный count обязан прочитать все строки статуса, поэтому проверяется только отсутствие Seq Scan
+        assertQueuePlan("depth", queue, List.of(queue.getSourceStatus().name()), false,
+                () -> documentRepository.countByStatus(queue.getSourceStatus()));
+    }
+
+    private void assertQueuePlan(String shape, WorkerQueue queue, List<Object> args, boolean withBudget,
+                                 Runnable query) {
+        jdbcTemplate.execute("SET LOCAL search_path TO " + SCHEMA);
+
+        CapturingInspector.lastQueueSql = null;
+        query.run();
+        String sql = CapturingInspector.lastQueueSql;
+        assertNotNull(sql, "Запрос очереди не был перехвачен");
+
+        explain(shape, queue.name(), sql, args, withBudget);
+    }
+
+    private void assertPlan(String shape, String values, DocumentSearchFilter filter, List<Object> tail,
+                            Runnable query) {
+        jdbcTemplate.execute("SET LOCAL search_path TO " + SCHEMA);
+
+        CapturingInspector.lastSql = null;
+        query.run();
+        String sql = CapturingInspector.lastSql;
+        assertNotNull(sql, "Запрос поиска не был перехвачен");
+
+        List<Object> args = new ArrayList<>();
+        args.add(typed(Types.VARCHAR, filter.status() != null ? filter.status().name() : null));
+        args.add(args.getLast());
+        args.add(typed(Types.VARCHAR, filter.author()));
+        args.add(args.getLast());
+        args.add(typed(Types.TIMESTAMP, filter.fromDate()));
+        args.add(args.getLast());
+        args.add(typed(Types.TIMESTAMP, filter.toDate()));
+        args.add(args.getLast());
+        args.addAll(tail);
+
+        explain(shape, values + " " + describe(filter), sql, args, true);
+    }
+
+    private void explain(String shape, String description, String sql, List<Object> args, boolean withBudget) {
+        assertEquals(sql.chars().filter(c -> c == '?').count(), args.size(), "Параметры запроса: " + sql);
+
+        String json = jdbcTemplate.queryForObject("EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) " + sql,
+                String.class, args.toArray());
+        JsonNode explain = jsonMapper.readTree(json).get(0);
+        JsonNode plan = explain.get("Plan");
+        double executionTime = explain.get("Execution Time").asDouble();
+
+        List<String> nodes = new ArrayList<>();
+        collectNodes(plan, nodes);
+        log.info("План запроса. Запрос: {}, Параметры: {}, Время: {} мс, Буферы: hit={} read={}, Узлы: {}",
+                shape, description, executionTime, plan.path("Shared Hit Blocks").asLong(),
+                plan.path("Shared Read Blocks").asLong(), nodes);
+
+        assertFalse(nodes.contains("Seq Scan on documents"), "Seq Scan по documents: " + nodes);
+        assertTrue(!withBudget || executionTime <= budgetMillis,
+                "Запрос выполнялся " + executionTime + " мс при бюджете " + budgetMillis + " мс: " + nodes);
+    }
+
+    private static void collectNodes(JsonNode node, List<String> nodes) {
+        String type = node.get("Node Type").asString();
+        String relation = node.path("Relation Name").asString(null);
+        String index = node.path("Index Name").asString(null);
+        nodes.add(type + (relation != null ? " on " + relation : "") + (index != null ? " using " + index : ""));
+        for (JsonNode child : node.path("Plans")) {
+            collectNodes(child, nodes);
+        }
+    }
+
+    private static SqlParameterValue typed(int type, Object value) {
+        return new SqlParameterValue(type, value);
+    }
+
+    private static String describe(DocumentSearchFilter filter) {
+        List<String> parts = new ArrayList<>();
+        if (filter.status() != null) {
+            parts.add("status");
+        }
+        if (filter.author() != null) {
+            parts.add("author");
+        }
+        if (filter.fromDate() != null) {
+            parts.add("fromDate");
+        }
+        if (filter.toDate() != null) {
+            parts.add("toDate");
+        }
+        return parts.isEmpty() ? "без фильтров" : String.join("+", parts);
+    }
+
+    record Sample(String name, DocumentStatus status, String author,
+                  LocalDateTime fromDate, LocalDateTime toDate, LocalDateTime cursor) {
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+
+        static volatile String lastSql;
+
+        static volatile String lastQueueSql;
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.startsWith("select") && sql.contains(" from documents d1_0 where (? is null")) {
+                lastSql = sql;
+            } else if (sql.toLowerCase().contains("from documents")) {
+                lastQueueSql = sql;
+            }
+            return sql;
+        }
+    }
+}
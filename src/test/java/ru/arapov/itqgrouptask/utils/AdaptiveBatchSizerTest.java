@@ -0,0 +1,80 @@
+package ru.arapov.itqgrouptask.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveBatchSizerTest {
+
+    private static final long TARGET_LATENCY_MS = 500;
+
+    private static final double MAX_CONFLICT_RATE = 0.1;
+
+    @Test
+    @DisplayName("Полный быстрый пакет увеличивает размер на четверть, не выше максимума")
+    void testGrowsByQuarterUpToMax() {
+        AdaptiveBatchSizer sizer = sizer(100, 10, 150);
+
+        sizer.record(100, 100, 50, 0);
+        assertEquals(125, sizer.currentSize());
+
+        sizer.record(125, 125, 50, 0);
+        assertEquals(150, sizer.currentSize());
+
+        sizer.record(150, 150, 50, 0);
+        assertEquals(150, sizer.currentSize());
+    }
+
+    @Test
+    @DisplayName("Маленький пакет растет хотя бы на один документ")
+    void testGrowsAtLeastByOne() {
+        AdaptiveBatchSizer sizer = sizer(2, 1, 10);
+
+        sizer.record(2, 2, 10, 0);
+        assertEquals(3, sizer.currentSize());
+    }
+
+    @Test
+    @DisplayName("Неполный пакет размер не меняет")
+    void testPartialBatchKeepsSize() {
+        AdaptiveBatchSizer sizer = sizer(100, 10, 1000);
+
+        sizer.record(100, 40, 50, 0);
+        assertEquals(100, sizer.currentSize());
+    }
+
+    @Test
+    @DisplayName("Медленный пакет уменьшает размер вдвое, не ниже минимума")
+    void testHalvesOnSlowBatchDownToMin() {
+        AdaptiveBatchSizer sizer = sizer(100, 30, 1000);
+
+        sizer.record(100, 100, TARGET_LATENCY_MS + 1, 0);
+        assertEquals(50, sizer.currentSize());
+
+        sizer.record(50, 50, TARGET_LATENCY_MS + 1, 0);
+        assertEquals(30, sizer.currentSize());
+    }
+
+    @Test
+    @DisplayName("Доля конфликтов выше порога уменьшает размер вдвое даже у быстрого полного пакета")
+    void testHalvesOnConflicts() {
+        AdaptiveBatchSizer sizer = sizer(100, 10, 1000);
+
+        sizer.record(100, 100, 50, MAX_CONFLICT_RATE + 0.01);
+        assertEquals(50, sizer.currentSize());
+
+        sizer.record(50, 50, TARGET_LATENCY_MS, MAX_CONFLICT_RATE);
+        assertEquals(62, sizer.currentSize());
+    }
+
+    @Test
+    @DisplayName("Начальный размер приводится к границам")
+    void testInitialSizeClamped() {
+        assertEquals(10, sizer(1, 10, 100).currentSize());
+        assertEquals(100, sizer(5000, 10, 100).currentSize());
+    }
+
+    private static AdaptiveBatchSizer sizer(int initialSize, int minSize, int maxSize) {
+        return new AdaptiveBatchSizer("TEST", initialSize, minSize, maxSize, TARGET_LATENCY_MS, MAX_CONFLICT_RATE);
+    }
+}